@@ -0,0 +1,124 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the phases of the evaluation of a {@link BuildGraphPipelineSinkTrigger} over synthetic build pipeline graphs.
+ *
+ * <p>Run with: {@code mvn -P benchmark test-compile exec:exec} (JMH options can be passed with {@code -Dbenchmark.args="..."}).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineEvaluationBenchmark {
+
+    @Param({ "chain", "fanout", "diamond", "random" })
+    public String topology;
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private SyntheticPipeline pipeline;
+    private PipelineGraph<String> graph;
+    private List<String> nodes;
+    private PipelineEvaluator<String> evaluator;
+    private ExecutorService scanExecutor;
+    private PipelineEvaluator<String> parallelEvaluator;
+    private PipelineFingerprint fingerprint;
+    private PipelineFingerprint prevFingerprint;
+
+    @Setup
+    public void setUp() {
+        if ("chain".equals(topology)) {
+            pipeline = SyntheticPipeline.chain(size);
+        }
+        else if ("fanout".equals(topology)) {
+            pipeline = SyntheticPipeline.fanOut(size);
+        }
+        else if ("diamond".equals(topology)) {
+            pipeline = SyntheticPipeline.diamondLattice(10, size / 10);
+        }
+        else {
+            pipeline = SyntheticPipeline.randomDag(size, 3, 42L);
+        }
+        graph = new PipelineGraphBuilder<String>(pipeline).build(pipeline.getRoot());
+        nodes = new ArrayList<String>(graph.getNodeCount());
+        for (int id : graph.getDepthFirstOrder()) {
+            nodes.add(graph.getNode(id));
+        }
+        evaluator = new PipelineEvaluator<String>(pipeline, false);
+        fingerprint = new PipelineFingerprint();
+        evaluator.evaluate(nodes, fingerprint, null);
+        prevFingerprint = fingerprint.copy();
+        scanExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        parallelEvaluator = new PipelineEvaluator<String>(pipeline, false, scanExecutor, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scanExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public PipelineGraph<String> constructGraph() {
+        return new PipelineGraphBuilder<String>(pipeline).build(pipeline.getRoot());
+    }
+
+    /**
+     * Cycle detection and topological ordering, as carried out once per graph constructed (the outcome being then cached along with the
+     * graph, see {@link PipelineGraphCache}).
+     */
+    @Benchmark
+    public PipelineGraph.Analysis analyzeGraph() {
+        return graph.analyze();
+    }
+
+    /**
+     * Activity/stability scan of an unchanged pipeline (i.e. the steady-state poll).
+     */
+    @Benchmark
+    public PipelineEvaluator.Decision evaluateUnchangedPipeline() {
+        return evaluator.evaluate(nodes, fingerprint, prevFingerprint);
+    }
+
+    /**
+     * Same as {@link #evaluateUnchangedPipeline()}, the status of the nodes being scanned in parallel.
+     */
+    @Benchmark
+    public PipelineEvaluator.Decision evaluateUnchangedPipelineInParallel() {
+        return parallelEvaluator.evaluate(nodes, fingerprint, prevFingerprint);
+    }
+
+    /**
+     * Calculation of the fingerprint of the whole pipeline from scratch (i.e. every node changed).
+     */
+    @Benchmark
+    public PipelineFingerprint calculateFingerprint() {
+        final PipelineFingerprint fresh = new PipelineFingerprint();
+        for (String node : nodes) {
+            fresh.update(node, "1");
+        }
+        return fresh;
+    }
+
+}
@@ -0,0 +1,118 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.Result;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic build pipeline graph (nodes are named {@code Job-<index>}, {@code Job-0} being the root) used for benchmarking the evaluation of
+ * the trigger without a live Hudson. Every node is inactive, and its last build was successful.
+ */
+final class SyntheticPipeline implements ProjectGraphSource<String>, ProjectStatusSource<String> {
+
+    private static final BuildStatus LAST_BUILD_STATUS = new BuildStatus("1", Result.SUCCESS);
+
+    private final List<List<String>> downstream;
+
+    private SyntheticPipeline(int size) {
+        downstream = new ArrayList<List<String>>(size);
+        for (int i = 0; i < size; i++) {
+            downstream.add(new ArrayList<String>());
+        }
+    }
+
+    /**
+     * A single path of {@code size} nodes.
+     */
+    static SyntheticPipeline chain(int size) {
+        final SyntheticPipeline pipeline = new SyntheticPipeline(size);
+        for (int i = 1; i < size; i++) {
+            pipeline.addEdge(i - 1, i);
+        }
+        return pipeline;
+    }
+
+    /**
+     * A root with {@code size - 1} direct downstream nodes.
+     */
+    static SyntheticPipeline fanOut(int size) {
+        final SyntheticPipeline pipeline = new SyntheticPipeline(size);
+        for (int i = 1; i < size; i++) {
+            pipeline.addEdge(0, i);
+        }
+        return pipeline;
+    }
+
+    /**
+     * A root fanning out to {@code width} nodes, each level of {@code width} nodes being fully connected to the next one (i.e. {@code width^depth}
+     * root-to-leaf paths).
+     */
+    static SyntheticPipeline diamondLattice(int width, int depth) {
+        final SyntheticPipeline pipeline = new SyntheticPipeline(1 + width * depth);
+        for (int i = 0; i < width; i++) {
+            pipeline.addEdge(0, 1 + i);
+        }
+        for (int level = 1; level < depth; level++) {
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < width; j++) {
+                    pipeline.addEdge(1 + (level - 1) * width + i, 1 + level * width + j);
+                }
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * A random directed acyclic graph where every node is reachable from the root, with an average of {@code degree} downstream nodes per node.
+     */
+    static SyntheticPipeline randomDag(int size, int degree, long seed) {
+        final Random random = new Random(seed);
+        final SyntheticPipeline pipeline = new SyntheticPipeline(size);
+        for (int i = 1; i < size; i++) {
+            pipeline.addEdge(random.nextInt(i), i);
+        }
+        // Edges always go from a lower to a higher index, so no cycle can be introduced.
+        for (int k = 0; k < (degree - 1) * size; k++) {
+            final int source = random.nextInt(size - 1);
+            final int target = source + 1 + random.nextInt(size - source - 1);
+            pipeline.addEdge(source, target);
+        }
+        return pipeline;
+    }
+
+    private void addEdge(int source, int target) {
+        downstream.get(source).add(nameOf(target));
+    }
+
+    private static String nameOf(int index) {
+        return "Job-" + index;
+    }
+
+    String getRoot() {
+        return nameOf(0);
+    }
+
+    public String getName(String node) {
+        return node;
+    }
+
+    public List<String> getDownstream(String node) {
+        return Collections.unmodifiableList(downstream.get(Integer.parseInt(node.substring(4))));
+    }
+
+    public String getFullName(String node) {
+        return node;
+    }
+
+    public boolean isActive(String node) {
+        return false;
+    }
+
+    public BuildStatus getLastBuildStatus(String node) {
+        return LAST_BUILD_STATUS;
+    }
+
+}
@@ -0,0 +1,59 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Hudson;
+import hudson.model.Queue;
+import hudson.model.queue.Executables;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Point-in-time snapshot of the tasks that are currently scheduled in the build queue, or running on an executor.
+ *
+ * <p>The build queue is scanned (and its lock acquired) once per snapshot, as opposed to once per project for
+ * {@link hudson.model.AbstractProject#isInQueue()}, so checking the activity of every node of a build pipeline graph costs O(1) per node.</p>
+ */
+final class ActivitySnapshot {
+
+    private final Set<Queue.Task> queued;
+    private final Set<Queue.Task> running;
+
+    private ActivitySnapshot(Set<Queue.Task> queued, Set<Queue.Task> running) {
+        this.queued = queued;
+        this.running = running;
+    }
+
+    static ActivitySnapshot capture() {
+        final Hudson hudson = Hudson.getInstance();
+        final Set<Queue.Task> queued = new HashSet<Queue.Task>();
+        for (Queue.Item item : hudson.getQueue().getItems()) {
+            queued.add(item.task);
+        }
+        final Set<Queue.Task> running = new HashSet<Queue.Task>();
+        for (Computer computer : hudson.getComputers()) {
+            addRunningTasks(computer.getExecutors(), running);
+            addRunningTasks(computer.getOneOffExecutors(), running);
+        }
+        return new ActivitySnapshot(queued, running);
+    }
+
+    private static void addRunningTasks(Iterable<? extends Executor> executors, Set<Queue.Task> running) {
+        for (Executor executor : executors) {
+            final Queue.Executable executable = executor.getCurrentExecutable();
+            if (executable != null) {
+                // The executable of a sub-task (e.g. a module of a matrix project) accounts for the activity of the task owning it.
+                running.add(Executables.getParentOf(executable).getOwnerTask());
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the specified task was running, or scheduled in the build queue when the snapshot was captured.
+     */
+    boolean isActive(Queue.Task task) {
+        return running.contains(task) || queued.contains(task);
+    }
+
+}
@@ -1,56 +1,53 @@
 package hudson.plugins.pipelinesinktrigger;
 
 import hudson.Extension;
+import hudson.model.Action;
 import hudson.model.Item;
-import hudson.model.Result;
 import hudson.model.TopLevelItem;
 import hudson.model.AbstractProject;
 import hudson.model.Cause;
 import hudson.model.Hudson;
-import hudson.model.Project;
+import hudson.model.Job;
 import hudson.model.Run;
+import hudson.model.TaskListener;
 import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.triggers.SafeTimerTask;
 import hudson.triggers.Trigger;
 import hudson.triggers.TriggerDescriptor;
 import hudson.triggers.TimerTrigger;
 import hudson.util.FormValidation;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.ObjectStreamException;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
+import java.util.TimerTask;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.PatternSyntaxException;
 
 import javax.servlet.ServletException;
 
 import org.antlr.runtime.RecognitionException;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.jgrapht.DirectedGraph;
-import org.jgrapht.EdgeFactory;
-import org.jgrapht.alg.CycleDetector;
-import org.jgrapht.graph.DefaultDirectedGraph;
-import org.jgrapht.traverse.DepthFirstIterator;
+import org.jvnet.localizer.Localizable;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 
-import com.google.common.base.Charsets;
-import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.google.common.io.Files;
 
 /**
  * {@link Trigger} primarily used for periodically scheduling a build of a configured sink job if and only if the corresponding build pipeline graph
- * is inactive, stable, and stale:
+ * (rooted at the configured root job) is inactive, stable, and stale:
  * <ul>
  *   <li><b>Inactive:</b> None of the jobs that make up the nodes of the build pipeline graph are currently running, or scheduled in the build queue.</li>
  *   <li><b>Stable:</b> The last build (if present) for each job that make up the nodes of the build pipeline graph were successful. This rule can be relaxed
@@ -59,6 +56,9 @@ import com.google.common.io.Files;
  * </ul>
  * 
  * <p>All rules must comply in order for a build of the sink job to be scheduled.</p>
+ *
+ * <p>Additional root/sink pairs can be configured (see {@link SinkPipeline}), each of them being decided independently, but from the same
+ * status of the projects (and, for the pairs sharing a root, from the same build pipeline graph).</p>
  */
 public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>> {
 
@@ -68,21 +68,77 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
 
     private static final String CONTEXT_FINGERPRINT_FILE_NM = "pipeline-context.fingerprint";
 
+    /**
+     * Delay (in milliseconds) between the completion of an upstream dependency build and the (event-driven) re-evaluation of the trigger,
+     * giving the completed build time to leave the building state, and its downstream builds time to be scheduled.
+     */
+    private static final long EVENT_EVALUATION_DELAY = Long.getLong(BuildGraphPipelineSinkTrigger.class.getName() + ".eventEvaluationDelay", 2000L);
+
     private String rootProjectName;
     private String sinkProjectName;
     private String excludedProjectNames;
     private final boolean ignoreNonSuccessfulUpstreamDependencyBuilds;
     private final boolean verbose;
+    private final boolean eventDriven;
+    private final boolean restrictToSinkAncestors;
+    private final int settlePeriod;
+    private String additionalPipelines;
+
+    private transient ExclusionMatcher exclusions;
+    private transient AtomicReference<TimerTask> eventEvaluation;
+    private transient List<SinkPipeline> pipelines;
+    private transient AtomicReference<TimerTask> settleEvaluation;
+    private transient volatile boolean stopped;
+    private transient TriggerMetrics metrics;
+    private transient DecisionLog decisionLog;
 
     @DataBoundConstructor
     public BuildGraphPipelineSinkTrigger(String spec, String rootProjectName, String sinkProjectName, String excludedProjectNames,
-            boolean ignoreNonSuccessfulUpstreamDependencyBuilds, boolean verbose) throws RecognitionException {
+            boolean ignoreNonSuccessfulUpstreamDependencyBuilds, boolean verbose, boolean eventDriven, boolean restrictToSinkAncestors,
+            int settlePeriod, String additionalPipelines) throws RecognitionException {
         super(spec);
         this.rootProjectName = rootProjectName;
         this.sinkProjectName = sinkProjectName;
         this.excludedProjectNames = excludedProjectNames;
         this.ignoreNonSuccessfulUpstreamDependencyBuilds = ignoreNonSuccessfulUpstreamDependencyBuilds;
         this.verbose = verbose;
+        this.eventDriven = eventDriven;
+        this.restrictToSinkAncestors = restrictToSinkAncestors;
+        this.settlePeriod = Math.max(0, settlePeriod);
+        this.additionalPipelines = additionalPipelines;
+        this.exclusions = parseExclusions(excludedProjectNames);
+        this.eventEvaluation = new AtomicReference<TimerTask>();
+        this.pipelines = createPipelines();
+        this.settleEvaluation = new AtomicReference<TimerTask>();
+        this.metrics = new TriggerMetrics();
+        this.decisionLog = new DecisionLog();
+    }
+
+    @Override
+    protected Object readResolve() throws ObjectStreamException {
+        super.readResolve();
+        exclusions = parseExclusions(excludedProjectNames);
+        eventEvaluation = new AtomicReference<TimerTask>();
+        pipelines = createPipelines();
+        settleEvaluation = new AtomicReference<TimerTask>();
+        metrics = new TriggerMetrics();
+        decisionLog = new DecisionLog();
+        return this;
+    }
+
+    /**
+     * @return the main root/sink pair (recording its fingerprint in the historical file), followed by the additional ones.
+     */
+    private List<SinkPipeline> createPipelines() {
+        final long settlePeriodMillis = TimeUnit.SECONDS.toMillis(settlePeriod);
+        final List<SinkPipeline> sinkPipelines = new CopyOnWriteArrayList<SinkPipeline>();
+        sinkPipelines.add(new SinkPipeline(rootProjectName, sinkProjectName, CONTEXT_FINGERPRINT_FILE_NM, settlePeriodMillis));
+        sinkPipelines.addAll(SinkPipeline.parse(additionalPipelines, settlePeriodMillis));
+        return sinkPipelines;
+    }
+
+    private static ExclusionMatcher parseExclusions(String excludedProjectNames) {
+        return ExclusionMatcher.compile(ExclusionMatcher.split(excludedProjectNames));
     }
 
     public String getRootProjectName() {
@@ -105,182 +161,375 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
         return verbose;
     }
 
-    @Override
-    public void run() {
-        if (!Hudson.getInstance().isQuietingDown()) {
-            LOGGER.log(Level.INFO, MARKER);
-            LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_DecidingIfBuildShouldBeTriggered(this.job.getName(), sinkProjectName));
-            try {
-                final TopLevelItem rootProjectItem = Hudson.getInstance().getItem(rootProjectName);
-                if (rootProjectItem == null) {
-                    LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_RootProjectDoesNotExist(rootProjectName));
-                    return;
-                }
-                final AbstractProject<?,?> rootProject = (AbstractProject<?,?>) rootProjectItem;
-                if (rootProject.isDisabled()) {
-                    LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_RootProjectDisabled(rootProjectName));
-                    return;
-                }
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
 
-                final TopLevelItem sinkProjectItem = Hudson.getInstance().getItem(sinkProjectName);
-                if (sinkProjectItem == null) {
-                    LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_SinkProjectDoesNotExist(sinkProjectName));
-                    return;
-                }
-                final AbstractProject<?,?> sinkProject = (AbstractProject<?,?>) sinkProjectItem;
-                if (sinkProject.isDisabled()) {
-                    LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_SinkProjectDisabled(sinkProjectName));
-                    return;
-                }
+    public boolean isRestrictToSinkAncestors() {
+        return restrictToSinkAncestors;
+    }
 
-                final Set<String> exclusions = new HashSet<String>();
-                for (String excludedPojectName : StringUtils.split(excludedProjectNames, ',')) {
-                    final TopLevelItem excludedProjectItem = Hudson.getInstance().getItem(excludedPojectName.trim());
-                    if (excludedProjectItem == null) {
-                        LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_ExcludedProjectDoesNotExist(excludedPojectName.trim()));
-                        return;
-                    }
-                    exclusions.add(excludedProjectItem.getName());
-                }
+    public int getSettlePeriod() {
+        return settlePeriod;
+    }
 
-                if (sinkProject.isBuilding()) {
-                    LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_SkippingTriggerSinceSinkProjectIsBuilding(sinkProjectName));
-                    return;
-                }
+    public String getAdditionalPipelines() {
+        return additionalPipelines;
+    }
 
-                final DirectedGraph<AbstractProject<?,?>, String> graph = constructDirectedGraph(rootProject, exclusions);
-                final CycleDetector<AbstractProject<?,?>, String> cycleDetector = new CycleDetector<AbstractProject<?,?>, String>(graph);
-                if (cycleDetector.detectCycles()) {
-                    LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_PipelineGraphContainsCycles(sinkProjectName));
-                    return;
-                }
-                triggerBuildOfSinkIfNecessary(graph, rootProject, sinkProject);
-            }
-            catch (Exception e) {
-                // Swallow the exception and log.
-                LOGGER.log(Level.SEVERE, "Encountered an error during trigger execution.", e);
-            }
-            finally {
-                LOGGER.log(Level.INFO, MARKER);
+    /**
+     * @return the main root/sink pair, followed by the additional ones.
+     */
+    List<SinkPipeline> getPipelines() {
+        return pipelines;
+    }
+
+    TriggerMetrics getMetrics() {
+        return metrics;
+    }
+
+    AbstractProject<?,?> getJob() {
+        return job;
+    }
+
+    DecisionLog getDecisionLog() {
+        return decisionLog;
+    }
+
+    @Override
+    public Action getProjectAction() {
+        return new PipelineSinkTriggerAction(this);
+    }
+
+    /**
+     * @return the names of the projects this trigger refers to (i.e. the root and sink projects of every pair, and the excluded projects, the
+     * exclusion patterns being left out).
+     */
+    Set<String> getReferencedProjectNames() {
+        final Set<String> names = new HashSet<String>();
+        for (String exclusion : exclusions.getEntries()) {
+            if (!ExclusionMatcher.isPattern(exclusion)) {
+                names.add(exclusion);
             }
         }
+        for (SinkPipeline pipeline : pipelines) {
+            names.add(pipeline.getRootProjectName());
+            names.add(pipeline.getSinkProjectName());
+        }
+        return names;
     }
 
-    @SuppressWarnings("rawtypes")
-    private DirectedGraph<AbstractProject<?,?>, String> constructDirectedGraph(AbstractProject<?,?> root, Set<String> exclusions) {
-        final DirectedGraph<AbstractProject<?,?>, String> graph = new DefaultDirectedGraph<AbstractProject<?,?>, String>(
-                new EdgeFactory<AbstractProject<?,?>, String>() {
-                    public String createEdge(AbstractProject<?,?> source, AbstractProject<?,?> target) {
-                        return String.format("'%s' --> '%s'", source.getName(), target.getName());
-                    }
-                });
-
-        final StringBuilder prettyPrinter = new StringBuilder(); // Used for printing the pipeline graph as an adjacency list matrix.
-        final Stack<AbstractProject<?,?>> stack = new Stack<AbstractProject<?,?>>();
-        graph.addVertex(root);
-        stack.push(root);
-        while (!stack.isEmpty()) {
-            final AbstractProject<?,?> p = stack.pop();
-            prettyPrinter.append(p.getName());
-            prettyPrinter.append(": {");
-            int index = 0;
-            final List<AbstractProject> children = p.getDownstreamProjects();
-            for (AbstractProject<?,?> child : children) {
-                if (!child.isDisabled() && !exclusions.contains(child.getName())) {
-                    graph.addVertex(child);
-                    graph.addEdge(p, child);
-                    stack.push(child);
-                    if (index > 0) {
-                        prettyPrinter.append(", ");
-                    }
-                    prettyPrinter.append(child.getName());
-                    index++;
+    @Override
+    public void start(AbstractProject<?,?> project, boolean newInstance) {
+        super.start(project, newInstance);
+        stopped = false;
+        for (SinkPipeline pipeline : pipelines) {
+            pipeline.start(project);
+        }
+        PipelineTriggerRegistry.register(this);
+    }
+
+    @Override
+    public void stop() {
+        // The evaluations already scheduled by this trigger must not evaluate its (possibly replaced) configuration anymore.
+        stopped = true;
+        cancel(eventEvaluation);
+        cancel(settleEvaluation);
+        PipelineTriggerRegistry.unregister(this);
+        PipelineSweep.cancel(this);
+        PipelineEvaluationExecutor.cancel(this);
+        for (SinkPipeline pipeline : pipelines) {
+            pipeline.stop();
+        }
+        super.stop();
+    }
+
+    /**
+     * Called from {@link BuildGraphPipelineSinkTrigger.DefaultRunListener} when a build of a project that is part of the build pipeline
+     * graph completes. Records the completion time (see {@link TriggerMetrics#recordUpstreamCompletion(long)}), and schedules a (delayed)
+     * re-evaluation of this trigger, coalescing the completion events received in the meantime.
+     */
+    void onUpstreamBuildCompleted() {
+        metrics.recordUpstreamCompletion(System.currentTimeMillis());
+        if (eventDriven) {
+            scheduleEvaluation(eventEvaluation, EVENT_EVALUATION_DELAY);
+        }
+    }
+
+    /**
+     * Schedules a re-evaluation of this trigger once the settle window of the build pipeline graph is expected to have elapsed, coalescing the
+     * requests received in the meantime.
+     */
+    private void scheduleSettleEvaluation(long delay) {
+        scheduleEvaluation(settleEvaluation, delay);
+    }
+
+    /**
+     * Schedules a re-evaluation of this trigger after the specified delay, unless one is already pending in the specified slot (which holds the
+     * pending evaluation until it runs, so that {@link #stop()} can cancel it).
+     */
+    private void scheduleEvaluation(final AtomicReference<TimerTask> pending, long delay) {
+        if (stopped) {
+            return;
+        }
+        final TimerTask evaluation = new SafeTimerTask() {
+            @Override
+            protected void doRun() throws Exception {
+                if (pending.compareAndSet(this, null)) {
+                    BuildGraphPipelineSinkTrigger.this.run();
                 }
             }
-            prettyPrinter.append(String.format("}%n"));
+        };
+        if (pending.compareAndSet(null, evaluation)) {
+            Trigger.timer.schedule(evaluation, delay);
         }
+    }
 
-        if (verbose) {
-            LOGGER.log(Level.INFO, String.format("The build pipeline graph rooted at '%s':%n%s", root.getName(), prettyPrinter.toString()));
+    private static void cancel(AtomicReference<TimerTask> pending) {
+        final TimerTask evaluation = pending.getAndSet(null);
+        if (evaluation != null) {
+            evaluation.cancel();
         }
+    }
 
-        return graph;
+    /**
+     * Requests an evaluation of this trigger, as part of the next {@link PipelineSweep} (which is carried out by the
+     * {@link PipelineEvaluationExecutor}, i.e. off the Hudson cron thread).
+     */
+    @Override
+    public void run() {
+        if (!stopped && !Hudson.getInstance().isQuietingDown()) {
+            PipelineSweep.request(this);
+        }
     }
 
-    private void triggerBuildOfSinkIfNecessary(DirectedGraph<AbstractProject<?,?>, String> graph, AbstractProject<?,?> root, AbstractProject<?,?> sink)
-            throws IOException {
-        final List<String> lastBuildFingerprints = Lists.newArrayList();
-        final List<String> listOfNonSuccessfulUpstreamProjectBuilds = new ArrayList<String>();
-        final DepthFirstIterator<AbstractProject<?,?>, String> itr = new DepthFirstIterator<AbstractProject<?,?>, String>(graph, root);
-        while (itr.hasNext()) {
-            final AbstractProject<?,?> project = itr.next();
-            if (project.isBuilding() || project.isInQueue()) {
-                LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_PipelineActive(sinkProjectName));
-                return;
+    /**
+     * Decides, for each root/sink pair, if a build of the sink project should be scheduled, and schedules it if so. The decisions are recorded
+     * in the {@link DecisionLog}, and only rendered to the system log at INFO level if the <b>verbose</b> option is selected (or at FINE level
+     * otherwise), or if a build of the sink project gets scheduled.
+     */
+    void evaluate(HudsonProjectStatusSource statusSource) {
+        if (!Hudson.getInstance().isQuietingDown()) {
+            final Set<String> pipelineNodeNames = new HashSet<String>();
+            for (SinkPipeline pipeline : pipelines) {
+                evaluate(pipeline, statusSource, pipelineNodeNames);
             }
+            if (!pipelineNodeNames.isEmpty()) {
+                PipelineTriggerRegistry.updatePipelineNodes(this, pipelineNodeNames);
+            }
+        }
+    }
 
-            final Run<?,?> lastBuild = project.getLastBuild();
-            if (lastBuild != null && lastBuild.getResult().isWorseThan(Result.UNSTABLE)) {
-                listOfNonSuccessfulUpstreamProjectBuilds.add(project.getName());
+    /**
+     * Evaluates a single root/sink pair, recording the {@link PipelineSnapshot} of the evaluation.
+     *
+     * @param pipelineNodeNames collects the names of the projects that make up the build pipeline graph of the pair.
+     */
+    private void evaluate(SinkPipeline sinkPipeline, HudsonProjectStatusSource statusSource, Set<String> pipelineNodeNames) {
+        final String sinkProjectName = sinkPipeline.getSinkProjectName();
+        final long start = System.nanoTime();
+        final Level traceLevel = verbose ? Level.INFO : Level.FINE;
+        final boolean tracing = LOGGER.isLoggable(traceLevel);
+        if (tracing) {
+            LOGGER.log(traceLevel, MARKER);
+            LOGGER.log(traceLevel, Messages.BuildGraphPipelineSinkTrigger_DecidingIfBuildShouldBeTriggered(this.job.getName(), sinkProjectName));
+        }
+        final PipelineSnapshot.Builder snapshot = new PipelineSnapshot.Builder();
+        Verdict verdict;
+        try {
+            verdict = decide(sinkPipeline, statusSource, pipelineNodeNames, snapshot, traceLevel);
+            if (tracing || verdict.outcome == TriggerMetrics.Outcome.TRIGGERED) {
+                LOGGER.log(tracing ? traceLevel : Level.INFO, verdict.message.toString());
             }
+        }
+        catch (CancellationException e) {
+            verdict = new Verdict(TriggerMetrics.Outcome.CANCELLED,
+                    Messages._BuildGraphPipelineSinkTrigger_EvaluationCancelled(sinkProjectName, PipelineEvaluationExecutor.TIMEOUT));
+            LOGGER.log(Level.WARNING, verdict.message.toString());
+        }
+        catch (Exception e) {
+            // Swallow the exception and log.
+            verdict = new Verdict(TriggerMetrics.Outcome.ERROR, Messages._BuildGraphPipelineSinkTrigger_EvaluationFailed(e));
+            LOGGER.log(Level.SEVERE, "Encountered an error during trigger execution.", e);
+        }
+        final long duration = System.nanoTime() - start;
+        metrics.recordOutcome(verdict.outcome);
+        metrics.recordPhase(TriggerMetrics.Phase.TOTAL, duration);
+        final long timestamp = System.currentTimeMillis();
+        decisionLog.add(new DecisionLog.Entry(timestamp, verdict.outcome, duration, verdict.message));
+        sinkPipeline.setSnapshot(snapshot.build(sinkPipeline, timestamp, verdict.outcome, verdict.message));
+        if (tracing) {
+            LOGGER.log(traceLevel, MARKER);
+        }
+    }
+
+    private Verdict decide(SinkPipeline sinkPipeline, HudsonProjectStatusSource statusSource, Set<String> pipelineNodeNames,
+            PipelineSnapshot.Builder snapshot, Level traceLevel) throws IOException {
+        final String rootProjectName = sinkPipeline.getRootProjectName();
+        final String sinkProjectName = sinkPipeline.getSinkProjectName();
+        final TopLevelItem rootProjectItem = Hudson.getInstance().getItem(rootProjectName);
+        if (rootProjectItem == null) {
+            return skipped(Messages._BuildGraphPipelineSinkTrigger_RootProjectDoesNotExist(rootProjectName));
+        }
+        final AbstractProject<?,?> rootProject = (AbstractProject<?,?>) rootProjectItem;
+        if (rootProject.isDisabled()) {
+            return skipped(Messages._BuildGraphPipelineSinkTrigger_RootProjectDisabled(rootProjectName));
+        }
+
+        final TopLevelItem sinkProjectItem = Hudson.getInstance().getItem(sinkProjectName);
+        if (sinkProjectItem == null) {
+            return skipped(Messages._BuildGraphPipelineSinkTrigger_SinkProjectDoesNotExist(sinkProjectName));
+        }
+        final AbstractProject<?,?> sinkProject = (AbstractProject<?,?>) sinkProjectItem;
+        if (sinkProject.isDisabled()) {
+            return skipped(Messages._BuildGraphPipelineSinkTrigger_SinkProjectDisabled(sinkProjectName));
+        }
 
-            // Capture a contextual "fingerprint" (note: the fingerprint is composed of the project's full name, and last build id (if present), so
-            // if a project is renamed during its existence, then it can impact the detection of changes between consecutive polls of this trigger).
-            lastBuildFingerprints.add(String.format("%s(%s)", project.getFullName(), (lastBuild == null ? "" : lastBuild.getId())));
+        if (sinkProject.isBuilding()) {
+            return skipped(Messages._BuildGraphPipelineSinkTrigger_SkippingTriggerSinceSinkProjectIsBuilding(sinkProjectName));
         }
 
-        if (!listOfNonSuccessfulUpstreamProjectBuilds.isEmpty()) {
-            final StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < listOfNonSuccessfulUpstreamProjectBuilds.size(); i++) {
-                sb.append(listOfNonSuccessfulUpstreamProjectBuilds.get(i));
-                if (i < listOfNonSuccessfulUpstreamProjectBuilds.size() - 1) {
-                    sb.append(", ");
+        long phaseStart = System.nanoTime();
+        final PipelineGraphCache.CachedGraph pipeline = PipelineGraphCache.get(rootProject, exclusions);
+        metrics.recordPhase(TriggerMetrics.Phase.GRAPH_BUILD, System.nanoTime() - phaseStart);
+        pipelineNodeNames.addAll(pipeline.getProjectNames());
+        if (LOGGER.isLoggable(traceLevel)) {
+            LOGGER.log(traceLevel, String.format("The build pipeline graph rooted at '%s':%n%s", rootProject.getName(), pipeline.getAdjacencyListing()));
+        }
+        phaseStart = System.nanoTime();
+        final boolean hasCycles = pipeline.hasCycles();
+        metrics.recordPhase(TriggerMetrics.Phase.CYCLE_CHECK, System.nanoTime() - phaseStart);
+        if (hasCycles) {
+            snapshot.nodes(pipeline.getProjects());
+            for (List<String> cycle : pipeline.getCycles()) {
+                for (String projectName : cycle) {
+                    snapshot.blocking(projectName, PipelineSnapshot.BlockingReason.CYCLE);
+                }
+            }
+            return skipped(Messages._BuildGraphPipelineSinkTrigger_PipelineGraphContainsCycles(sinkProjectName, new JoinedNames(pipeline.getCycles())));
+        }
+        List<AbstractProject<?,?>> projects = pipeline.getProjects();
+        if (restrictToSinkAncestors) {
+            final List<AbstractProject<?,?>> projectsFeedingSink = pipeline.getProjectsFeeding(sinkProject);
+            if (projectsFeedingSink.isEmpty()) {
+                if (LOGGER.isLoggable(traceLevel)) {
+                    LOGGER.log(traceLevel, Messages.BuildGraphPipelineSinkTrigger_SinkProjectNotConnectedToPipelineGraph(sinkProjectName));
                 }
             }
-            if (!ignoreNonSuccessfulUpstreamDependencyBuilds) {
-                LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_DetectedNonSuccessfulUpstreamDependencyBuilds(sinkProjectName, sb.toString()));
-                return;
+            else {
+                projects = projectsFeedingSink;
             }
-            LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_IgnoringNonSuccessfulUpstreamDependencyBuilds(sb.toString()));
         }
+        metrics.recordGraphSize(pipeline.getGraph().getNodeCount(), pipeline.getGraph().getEdgeCount(), projects.size());
+        snapshot.nodes(projects);
+        return triggerBuildOfSinkIfNecessary(sinkPipeline, projects, sinkProject, statusSource, snapshot, traceLevel);
+    }
 
-        // Determine if a build of the sink has already been triggered due to upstream dependency build changes.
-        final String currentFingerprint = calculateFingerprint(lastBuildFingerprints);
-        final String prevFingerprint = readFingerprint();
-
-        // Prevent a build of the sink project from being triggered upon initial setup of the trigger job itself (i.e. the previous fingerprint
-        // information will not exist when the first poll has been issued). Persist the initial fingerprint, and from this point onwards, any
-        // changes in the build pipeline graph will be detected.
-        if (prevFingerprint == null) {
-            persistFingerprint(currentFingerprint);
-            LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_NoPreviousFingerprintToCompareAgainst(sinkProjectName));
-            return;
+    private Verdict triggerBuildOfSinkIfNecessary(SinkPipeline sinkPipeline, List<AbstractProject<?,?>> projects, AbstractProject<?,?> sink,
+            HudsonProjectStatusSource statusSource, PipelineSnapshot.Builder snapshot, Level traceLevel) throws IOException {
+        final String sinkProjectName = sinkPipeline.getSinkProjectName();
+        final PipelineFingerprint pipelineFingerprint = sinkPipeline.getFingerprint();
+        final SettleWindow settleWindow = sinkPipeline.getSettleWindow();
+        long phaseStart = System.nanoTime();
+        final PipelineFingerprint prevFingerprint = sinkPipeline.getFingerprintStore().get();
+        metrics.recordPhase(TriggerMetrics.Phase.FINGERPRINT_IO, System.nanoTime() - phaseStart);
+
+        phaseStart = System.nanoTime();
+        final PipelineEvaluator<AbstractProject<?,?>> evaluator = new PipelineEvaluator<AbstractProject<?,?>>(statusSource,
+                ignoreNonSuccessfulUpstreamDependencyBuilds, PipelineEvaluationExecutor.NODE_SCANNERS, PipelineEvaluationExecutor.PARALLEL_THRESHOLD);
+        final PipelineEvaluator.Decision decision = evaluator.evaluate(projects, pipelineFingerprint, prevFingerprint);
+        metrics.recordPhase(TriggerMetrics.Phase.ACTIVITY_SCAN, System.nanoTime() - phaseStart);
+        final long now = System.currentTimeMillis();
+        final TriggerMetrics.Outcome outcome = decision.resolveOutcome(settleWindow, pipelineFingerprint, now);
+        switch (outcome) {
+            case ACTIVE:
+                snapshot.blocking(decision.getActiveNodeName(), PipelineSnapshot.BlockingReason.ACTIVE);
+                return new Verdict(outcome, Messages._BuildGraphPipelineSinkTrigger_PipelineActive(sinkProjectName));
+            case UNSTABLE:
+                for (String nodeName : decision.getNonSuccessfulNodeNames()) {
+                    snapshot.blocking(nodeName, PipelineSnapshot.BlockingReason.NON_SUCCESSFUL);
+                }
+                return new Verdict(outcome, Messages._BuildGraphPipelineSinkTrigger_DetectedNonSuccessfulUpstreamDependencyBuilds(
+                        sinkProjectName, new JoinedNames(decision.getNonSuccessfulNodeNames())));
+            default:
+                break;
         }
-        if (currentFingerprint.equals(prevFingerprint)) {
-            LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_NoUpstreamDependencyBuildChanges(sinkProjectName));
-            return;
+        if (!decision.getNonSuccessfulNodeNames().isEmpty() && LOGGER.isLoggable(traceLevel)) {
+            LOGGER.log(traceLevel, Messages.BuildGraphPipelineSinkTrigger_IgnoringNonSuccessfulUpstreamDependencyBuilds(
+                    StringUtils.join(decision.getNonSuccessfulNodeNames(), ", ")));
+        }
+
+        switch (outcome) {
+            case BASELINE:
+                // Prevent a build of the sink project from being triggered upon initial setup of the trigger job itself (i.e. the previous
+                // fingerprint information will not exist when the first poll has been issued). Persist the initial fingerprint, and from this
+                // point onwards, any changes in the build pipeline graph will be detected.
+                updateFingerprint(sinkPipeline);
+                return new Verdict(outcome, Messages._BuildGraphPipelineSinkTrigger_NoPreviousFingerprintToCompareAgainst(sinkProjectName));
+            case UNCHANGED:
+                return new Verdict(outcome, Messages._BuildGraphPipelineSinkTrigger_NoUpstreamDependencyBuildChanges(sinkProjectName));
+            case SETTLING:
+                final long remaining = settleWindow.getRemaining(now);
+                scheduleSettleEvaluation(remaining);
+                return new Verdict(outcome, Messages._BuildGraphPipelineSinkTrigger_WaitingForPipelineToSettle(sinkProjectName,
+                        TimeUnit.MILLISECONDS.toSeconds(remaining + 999)));
+            default:
+                break;
         }
 
-        // A change has been detected, so update the context, and schedule a build of the sink project.
-        persistFingerprint(currentFingerprint);
-        LOGGER.log(Level.INFO, Messages.BuildGraphPipelineSinkTrigger_DetectedUpstreamDependencyBuildChanges(sinkProjectName));
-        final boolean isBuildScheduled = sink.scheduleBuild(new BuildGraphPipelineSinkTriggerCause());
+        // Update the context, and schedule a build of the sink project.
+        final List<String> changedProjectNames = decision.getChangedNodeNames();
+        updateFingerprint(sinkPipeline);
+        final boolean isBuildScheduled = sink.scheduleBuild(new BuildGraphPipelineSinkTriggerCause(changedProjectNames));
         LOGGER.log(Level.INFO, isBuildScheduled ? hudson.tasks.Messages.BuildTrigger_Triggering(sinkProjectName) :
             hudson.tasks.Messages.BuildTrigger_InQueue(sinkProjectName));
+        metrics.recordTrigger(now);
+        sinkPipeline.setLastTriggerTime(now);
+        return new Verdict(outcome, Messages._BuildGraphPipelineSinkTrigger_DetectedUpstreamDependencyBuildChanges(
+                sinkProjectName, new JoinedNames(changedProjectNames)));
     }
 
-    private String calculateFingerprint(List<String> lastBuildFingerprints) {
-        Collections.sort(lastBuildFingerprints);
-        return DigestUtils.shaHex(Joiner.on(';').join(lastBuildFingerprints));
+    private static Verdict skipped(Localizable message) {
+        return new Verdict(TriggerMetrics.Outcome.SKIPPED, message);
     }
 
-    private String readFingerprint() throws IOException {
-        final File file = new File(this.job.getRootDir(), CONTEXT_FINGERPRINT_FILE_NM);
-        return file.exists() ? Files.readFirstLine(file, Charsets.UTF_8) : null;
+    /**
+     * Outcome of an evaluation, along with its (lazily rendered) explanation.
+     */
+    private static final class Verdict {
+
+        private final TriggerMetrics.Outcome outcome;
+        private final Localizable message;
+
+        public Verdict(TriggerMetrics.Outcome outcome, Localizable message) {
+            this.outcome = outcome;
+            this.message = message;
+        }
+
+    }
+
+    /**
+     * Comma-separated list of project names (or of lists of project names, e.g. the cycles), only joined when rendered.
+     */
+    private static final class JoinedNames {
+
+        private final List<?> names;
+
+        public JoinedNames(List<?> names) {
+            this.names = names;
+        }
+
+        @Override
+        public String toString() {
+            return StringUtils.join(names, ", ");
+        }
+
     }
 
-    private void persistFingerprint(String fingerprint) throws IOException {
-        Files.write(fingerprint, new File(this.job.getRootDir(), CONTEXT_FINGERPRINT_FILE_NM), Charsets.UTF_8);
+    private void updateFingerprint(SinkPipeline sinkPipeline) {
+        final long start = System.nanoTime();
+        sinkPipeline.getFingerprintStore().set(sinkPipeline.getFingerprint());
+        metrics.recordPhase(TriggerMetrics.Phase.FINGERPRINT_IO, System.nanoTime() - start);
     }
 
     @Extension
@@ -297,9 +546,44 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
         }
 
         public FormValidation doCheckExcludedProjectNames(@QueryParameter String excludedProjectNames) throws IOException, ServletException {
-            if (excludedProjectNames.trim().length() > 0) {
-                for (String excludedPojectName : StringUtils.split(excludedProjectNames, ',')) {
-                    final FormValidation val = validateProjectParemeter(excludedPojectName.trim());
+            int regexes = 0;
+            for (String exclusion : ExclusionMatcher.split(excludedProjectNames)) {
+                if (ExclusionMatcher.isRegex(exclusion) && ++regexes > ExclusionMatcher.MAX_REGEXES) {
+                    return FormValidation.error(Messages.BuildGraphPipelineSinkTrigger_TooManyExclusionRegexes(exclusion,
+                            ExclusionMatcher.MAX_REGEXES));
+                }
+                if (ExclusionMatcher.isPattern(exclusion)) {
+                    try {
+                        ExclusionMatcher.validate(exclusion);
+                    }
+                    catch (PatternSyntaxException e) {
+                        return FormValidation.error(Messages.BuildGraphPipelineSinkTrigger_InvalidExclusionPattern(exclusion, e.getDescription()));
+                    }
+                    continue;
+                }
+                // A missing excluded project does not prevent the evaluation of the trigger.
+                if (Hudson.getInstance().getItem(exclusion) == null) {
+                    return FormValidation.warning(Messages.BuildGraphPipelineSinkTrigger_NoSuchProject(exclusion));
+                }
+                final FormValidation val = validateProjectParemeter(exclusion);
+                if (FormValidation.Kind.ERROR.equals(val.getKind())) {
+                    return val;
+                }
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckAdditionalPipelines(@QueryParameter String additionalPipelines) throws IOException, ServletException {
+            for (String definition : StringUtils.split(StringUtils.defaultString(additionalPipelines), "\r\n")) {
+                if (definition.trim().length() == 0) {
+                    continue;
+                }
+                final String[] names = SinkPipeline.parseDefinition(definition);
+                if (names == null) {
+                    return FormValidation.error(Messages.BuildGraphPipelineSinkTrigger_MalformedPipelineDefinition(definition.trim()));
+                }
+                for (String name : names) {
+                    final FormValidation val = validateProjectParemeter(name);
                     if (FormValidation.Kind.ERROR.equals(val.getKind())) {
                         return val;
                     }
@@ -340,13 +624,20 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
 
     private static final class BuildGraphPipelineSinkTriggerCause extends Cause {
 
-        public BuildGraphPipelineSinkTriggerCause() {
+        private final List<String> changedProjectNames;
+
+        public BuildGraphPipelineSinkTriggerCause(List<String> changedProjectNames) {
             super();
+            this.changedProjectNames = changedProjectNames;
         }
 
         @Override
         public String getShortDescription() {
-            return Messages.BuildGraphPipelineSinkTrigger_CauseShortDescription();
+            // Builds triggered by a previous version of this plugin do not record the changed upstream projects.
+            if (changedProjectNames == null || changedProjectNames.isEmpty()) {
+                return Messages.BuildGraphPipelineSinkTrigger_CauseShortDescription();
+            }
+            return Messages.BuildGraphPipelineSinkTrigger_CauseShortDescriptionWithUpstreamChanges(StringUtils.join(changedProjectNames, ", "));
         }
 
     }
@@ -360,29 +651,37 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
         final boolean excludedProjectNamesChanged = handleRenameForExcludedProjectNames(oldName, newName);
         final boolean rootProjectNameChanged = handleRenameForRootProjectName(oldName, newName);
         final boolean sinkProjectNameChanged = handleRenameForSinkProjectName(oldName, newName);
-        return (excludedProjectNamesChanged || rootProjectNameChanged || sinkProjectNameChanged);
+        final boolean additionalPipelinesChanged = handleRenameForPipelines(oldName, newName);
+        return (excludedProjectNamesChanged || rootProjectNameChanged || sinkProjectNameChanged || additionalPipelinesChanged);
     }
 
     private boolean handleRenameForExcludedProjectNames(String oldName, String newName) {
-        boolean changed = false;
-        if (StringUtils.stripToEmpty(excludedProjectNames).length() > 0) {
-            final StringBuilder sb = new StringBuilder();
-            final String[] exclusions = StringUtils.split(excludedProjectNames, ',');
-            for (int i = 0; i < exclusions.length; i++) {
-                if (exclusions[i].trim().equals(oldName)) {
-                    sb.append(newName);
-                    changed = true;
-                }
-                else {
-                    sb.append(exclusions[i].trim());
-                }
-                if (i < exclusions.length - 1) {
-                    sb.append(',');
-                }
+        if (!exclusions.getEntries().contains(oldName)) {
+            return false;
+        }
+        final Set<String> renamedExclusions = Sets.newLinkedHashSet();
+        for (String exclusion : exclusions.getEntries()) {
+            renamedExclusions.add(exclusion.equals(oldName) ? newName : exclusion);
+        }
+        exclusions = ExclusionMatcher.compile(renamedExclusions);
+        excludedProjectNames = StringUtils.join(renamedExclusions, ',');
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the additional root/sink pairs changed (the main pair being handled along with the root and sink project names).
+     */
+    private boolean handleRenameForPipelines(String oldName, String newName) {
+        boolean additionalPipelinesChanged = false;
+        for (int i = 0; i < pipelines.size(); i++) {
+            if (pipelines.get(i).onJobRenamed(oldName, newName) && i > 0) {
+                additionalPipelinesChanged = true;
             }
-            excludedProjectNames = sb.toString();
         }
-        return changed;
+        if (additionalPipelinesChanged) {
+            additionalPipelines = SinkPipeline.format(pipelines.subList(1, pipelines.size()));
+        }
+        return additionalPipelinesChanged;
     }
 
     private boolean handleRenameForRootProjectName(String oldName, String newName) {
@@ -408,48 +707,42 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
      * @return {@code true} if this {@link BuildGraphPipelineSinkTrigger} is changed and needs to be saved, otherwise {@code false}.
      */
     public boolean onJobDeleted(String nameOfDeletedJob) {
-        boolean changed = false;
-        if (StringUtils.stripToEmpty(excludedProjectNames).length() > 0) {
-            final Set<String> setOfExclusions = Sets.newLinkedHashSet();
-            setOfExclusions.addAll(Arrays.asList(StringUtils.split(excludedProjectNames, ',')));
-            final Iterator<String> itr = setOfExclusions.iterator();
-            while (itr.hasNext()) {
-                final String exclusion = itr.next();
-                if (exclusion.trim().equals(nameOfDeletedJob)) {
-                    itr.remove();
-                    changed = true;
-                }
-            }
-            if (changed) {
-                final StringBuilder sb = new StringBuilder();
-                int i = 0;
-                for (String exclusion : setOfExclusions) {
-                    sb.append(exclusion.trim());
-                    if (i < setOfExclusions.size() - 1) {
-                        sb.append(',');
-                    }
-                    i++;
-                }
-                excludedProjectNames = sb.toString();
-            }
+        if (!exclusions.getEntries().contains(nameOfDeletedJob)) {
+            return false;
         }
-        return changed;
+        final Set<String> remainingExclusions = Sets.newLinkedHashSet(exclusions.getEntries());
+        remainingExclusions.remove(nameOfDeletedJob);
+        exclusions = ExclusionMatcher.compile(remainingExclusions);
+        excludedProjectNames = StringUtils.join(remainingExclusions, ',');
+        return true;
     }
 
     @Extension
     public static final class DefaultItemListener extends ItemListener {
 
+        @Override
+        public void onCreated(Item item) {
+            PipelineGraphCache.invalidate();
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            PipelineGraphCache.invalidate();
+        }
+
         @Override
         public void onDeleted(Item item) {
-            for (Project<?, ?> p : Hudson.getInstance().getProjects()) {
-                final BuildGraphPipelineSinkTrigger trigger = p.getTrigger(BuildGraphPipelineSinkTrigger.class);
-                if (trigger != null) {
-                    if (trigger.onJobDeleted(item.getName())) {
-                        try {
-                            p.save();
-                        } catch (IOException e) {
-                            LOGGER.log(Level.WARNING, String.format("Failed to persist project setting during deletion of %s", item.getName()), e);
-                        }
+            PipelineGraphCache.invalidate();
+            if (item instanceof Job) {
+                LastBuildStatusCache.invalidate((Job<?,?>) item);
+            }
+            for (BuildGraphPipelineSinkTrigger trigger : PipelineTriggerRegistry.getTriggersReferencing(item.getName())) {
+                if (trigger.onJobDeleted(item.getName())) {
+                    PipelineTriggerRegistry.reindex(trigger);
+                    try {
+                        trigger.job.save();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, String.format("Failed to persist project setting during deletion of %s", item.getName()), e);
                     }
                 }
             }
@@ -457,19 +750,49 @@ public class BuildGraphPipelineSinkTrigger extends Trigger<AbstractProject<?,?>>
 
         @Override
         public void onRenamed(Item item, String oldName, String newName) {
-            for (Project<?, ?> p : Hudson.getInstance().getProjects()) {
-                final BuildGraphPipelineSinkTrigger trigger = p.getTrigger(BuildGraphPipelineSinkTrigger.class);
-                if (trigger != null) {
-                    if (trigger.onJobRenamed(oldName, newName)) {
-                        try {
-                            p.save();
-                        } catch (IOException e) {
-                            LOGGER.log(Level.WARNING, String.format("Failed to persist project setting during rename from %s to %s", oldName, newName), e);
-                        }
+            PipelineGraphCache.invalidate();
+            for (BuildGraphPipelineSinkTrigger trigger : PipelineTriggerRegistry.getTriggersReferencing(oldName)) {
+                if (trigger.onJobRenamed(oldName, newName)) {
+                    PipelineTriggerRegistry.reindex(trigger);
+                    try {
+                        trigger.job.save();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, String.format("Failed to persist project setting during rename from %s to %s", oldName, newName), e);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Keeps the {@link LastBuildStatusCache} current, and notifies the (event-driven) triggers whose build pipeline graph contains the project
+     * of a completed build, so that the sink decision does not have to wait for the next cron tick (which remains as a safety-net sweep).
+     */
+    @Extension
+    @SuppressWarnings("rawtypes")
+    public static final class DefaultRunListener extends RunListener<Run> {
+
+        public DefaultRunListener() {
+            super(Run.class);
+        }
+
+        @Override
+        public void onStarted(Run r, TaskListener listener) {
+            LastBuildStatusCache.onStarted(r);
+        }
+
+        @Override
+        public void onCompleted(Run r, TaskListener listener) {
+            LastBuildStatusCache.onCompleted(r);
+            for (BuildGraphPipelineSinkTrigger trigger : PipelineTriggerRegistry.getTriggersAffectedBy(r.getParent().getName())) {
+                trigger.onUpstreamBuildCompleted();
+            }
+        }
+
+        @Override
+        public void onDeleted(Run r) {
+            LastBuildStatusCache.invalidate(r.getParent());
+        }
+    }
+
 }
@@ -0,0 +1,69 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.Result;
+import hudson.model.Run;
+
+/**
+ * Immutable status of the last build of a project, as far as the evaluation of a build pipeline graph is concerned.
+ */
+final class BuildStatus {
+
+    static final BuildStatus NEVER_BUILT = new BuildStatus("", 0, Result.SUCCESS);
+
+    private final String buildId;
+    private final int number;
+    private final Result result;
+
+    BuildStatus(String buildId, Result result) {
+        this(buildId, 0, result);
+    }
+
+    BuildStatus(String buildId, int number, Result result) {
+        this.buildId = buildId;
+        this.number = number;
+        this.result = result;
+    }
+
+    static BuildStatus of(Run<?,?> build) {
+        if (build == null) {
+            return NEVER_BUILT;
+        }
+        return new BuildStatus(build.getId(), build.getNumber(), build.getResult());
+    }
+
+    /**
+     * @return the id of the build, or an empty string if the project has never been built.
+     */
+    String getBuildId() {
+        return buildId;
+    }
+
+    /**
+     * @return the result of the build, or {@code null} if the build is still in progress.
+     */
+    Result getResult() {
+        return result;
+    }
+
+    /**
+     * @return the number of the build, or {@code 0} if the project has never been built.
+     */
+    int getNumber() {
+        return number;
+    }
+
+    /**
+     * @return {@code true} if the build is still in progress (i.e. has no result yet).
+     */
+    boolean isCompleting() {
+        return result == null;
+    }
+
+    /**
+     * @return {@code true} if the build completed with a result worse than {@link Result#UNSTABLE}.
+     */
+    boolean isNonSuccessful() {
+        return result != null && result.isWorseThan(Result.UNSTABLE);
+    }
+
+}
@@ -0,0 +1,90 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+
+import org.jvnet.localizer.Localizable;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Bounded, in-memory ring buffer of the most recent decisions taken by a {@link BuildGraphPipelineSinkTrigger}, shown on the page of the
+ * {@link PipelineSinkTriggerAction} of the job.
+ *
+ * <p>The message of a decision is kept as a {@link Localizable}, so it is only rendered when someone actually looks at it.</p>
+ */
+public final class DecisionLog {
+
+    static final int CAPACITY = Integer.getInteger(DecisionLog.class.getName() + ".capacity", 50);
+
+    private final int capacity;
+
+    // Guarded by this.
+    private final Deque<Entry> entries = new ArrayDeque<Entry>();
+
+    DecisionLog() {
+        this(CAPACITY);
+    }
+
+    DecisionLog(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    synchronized void add(Entry entry) {
+        if (entries.size() == capacity) {
+            entries.removeLast();
+        }
+        entries.addFirst(entry);
+    }
+
+    /**
+     * @return the recorded decisions, the most recent one first.
+     */
+    synchronized List<Entry> getEntries() {
+        return new ArrayList<Entry>(entries);
+    }
+
+    /**
+     * A single decision: when it was taken, its outcome, how long the evaluation took, and why.
+     */
+    @ExportedBean
+    public static final class Entry {
+
+        private final long timestamp;
+        private final TriggerMetrics.Outcome outcome;
+        private final long durationNanos;
+        private final Localizable message;
+
+        Entry(long timestamp, TriggerMetrics.Outcome outcome, long durationNanos, Localizable message) {
+            this.timestamp = timestamp;
+            this.outcome = outcome;
+            this.durationNanos = durationNanos;
+            this.message = message;
+        }
+
+        @Exported
+        public Date getTime() {
+            return new Date(timestamp);
+        }
+
+        @Exported
+        public String getOutcome() {
+            return outcome.name();
+        }
+
+        @Exported
+        public double getDurationMillis() {
+            return durationNanos / 1000000.0;
+        }
+
+        @Exported
+        public String getMessage() {
+            return message == null ? "" : message.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,183 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Matches project names against the exclusions of a {@link BuildGraphPipelineSinkTrigger}, compiled once (when the trigger is configured):
+ * <ul>
+ *   <li><b>Project names</b> (e.g. <code>MyProduct-Docs</code>) are looked up in a hash set.</li>
+ *   <li><b>Glob patterns</b> (e.g. <code>*-nightly</code>, <code>sandbox-*</code>), where <code>*</code> matches any sequence of characters
+ *   and <code>?</code> any single character, are compiled together into a {@link GlobAutomaton}, which matches a name against all of them
+ *   in O(name length) (once the states it needs are cached), without backtracking.</li>
+ *   <li><b>Regular expressions</b> delimited by slashes (e.g. <code>/release-[0-9]+/</code>) are compiled separately, and a name is matched
+ *   against each of them in turn: their cost is the one of {@link Pattern} (which backtracks) times their number, so at most
+ *   {@link #MAX_REGEXES} of them are used (the others are logged, and ignored).</li>
+ * </ul>
+ * Patterns always match the whole project name.
+ */
+final class ExclusionMatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(ExclusionMatcher.class.getName());
+
+    /**
+     * Maximum number of regular expressions among the exclusions of a trigger.
+     */
+    static final int MAX_REGEXES = Integer.getInteger(ExclusionMatcher.class.getName() + ".maxRegexes", 32);
+
+    private final ImmutableSet<String> entries;
+    private final Set<String> names;
+    private final GlobAutomaton globs;
+    private final List<Pattern> regexes;
+
+    private ExclusionMatcher(ImmutableSet<String> entries, Set<String> names, GlobAutomaton globs, List<Pattern> regexes) {
+        this.entries = entries;
+        this.names = names;
+        this.globs = globs;
+        this.regexes = regexes;
+    }
+
+    /**
+     * Compiles the specified exclusions (invalid regular expressions, and the regular expressions beyond {@link #MAX_REGEXES}, are logged,
+     * and ignored).
+     */
+    static ExclusionMatcher compile(Collection<String> exclusions) {
+        final Set<String> names = new HashSet<String>();
+        final List<String> globs = Lists.newArrayList();
+        final List<Pattern> regexes = Lists.newArrayList();
+        for (String exclusion : exclusions) {
+            if (!isPattern(exclusion)) {
+                names.add(exclusion);
+                continue;
+            }
+            if (!isRegex(exclusion)) {
+                globs.add(exclusion);
+                continue;
+            }
+            if (regexes.size() == MAX_REGEXES) {
+                LOGGER.log(Level.WARNING, Messages.BuildGraphPipelineSinkTrigger_TooManyExclusionRegexes(exclusion, MAX_REGEXES));
+                continue;
+            }
+            try {
+                regexes.add(Pattern.compile(toRegex(exclusion)));
+            }
+            catch (PatternSyntaxException e) {
+                LOGGER.log(Level.WARNING, Messages.BuildGraphPipelineSinkTrigger_InvalidExclusionPattern(exclusion, e.getDescription()));
+            }
+        }
+        return new ExclusionMatcher(ImmutableSet.copyOf(exclusions), names, globs.isEmpty() ? null : new GlobAutomaton(globs),
+                ImmutableList.copyOf(regexes));
+    }
+
+    /**
+     * Splits a comma-separated list of exclusions (the commas within a regular expression, e.g. <code>/job-[0-9]{1,3}/</code>, do not separate
+     * exclusions), trimming each exclusion, and leaving out the blank ones.
+     */
+    static List<String> split(String excludedProjectNames) {
+        final List<String> exclusions = Lists.newArrayList();
+        if (excludedProjectNames == null) {
+            return exclusions;
+        }
+        int start = 0;
+        while (start < excludedProjectNames.length()) {
+            int end = excludedProjectNames.indexOf(',', start);
+            final String leading = excludedProjectNames.substring(start, end < 0 ? excludedProjectNames.length() : end).trim();
+            if (leading.startsWith("/")) {
+                // A regular expression ends at the first slash followed by a comma (or by the end of the list).
+                final int open = excludedProjectNames.indexOf('/', start);
+                int close = open;
+                end = -1;
+                while ((close = excludedProjectNames.indexOf('/', close + 1)) >= 0) {
+                    int next = close + 1;
+                    while (next < excludedProjectNames.length() && Character.isWhitespace(excludedProjectNames.charAt(next))) {
+                        next++;
+                    }
+                    if (next == excludedProjectNames.length() || excludedProjectNames.charAt(next) == ',') {
+                        end = next == excludedProjectNames.length() ? -1 : next;
+                        break;
+                    }
+                }
+                if (close < 0) {
+                    // Unterminated regular expression: fall back to the next comma.
+                    end = excludedProjectNames.indexOf(',', start);
+                }
+            }
+            final String exclusion = excludedProjectNames.substring(start, end < 0 ? excludedProjectNames.length() : end).trim();
+            if (exclusion.length() > 0) {
+                exclusions.add(exclusion);
+            }
+            if (end < 0) {
+                break;
+            }
+            start = end + 1;
+        }
+        return exclusions;
+    }
+
+    /**
+     * @return {@code true} if the specified exclusion is a glob pattern or a regular expression, rather than a project name.
+     */
+    static boolean isPattern(String exclusion) {
+        return isRegex(exclusion) || exclusion.indexOf('*') >= 0 || exclusion.indexOf('?') >= 0;
+    }
+
+    /**
+     * @return {@code true} if the specified exclusion is a regular expression (delimited by slashes).
+     */
+    static boolean isRegex(String exclusion) {
+        return exclusion.length() > 2 && exclusion.startsWith("/") && exclusion.endsWith("/");
+    }
+
+    /**
+     * @throws PatternSyntaxException if the specified exclusion is an invalid regular expression (glob patterns are always valid).
+     */
+    static void validate(String exclusion) {
+        if (isRegex(exclusion)) {
+            Pattern.compile(toRegex(exclusion));
+        }
+    }
+
+    private static String toRegex(String exclusion) {
+        return exclusion.substring(1, exclusion.length() - 1);
+    }
+
+    boolean matches(String projectName) {
+        if (names.contains(projectName) || (globs != null && globs.matches(projectName))) {
+            return true;
+        }
+        for (Pattern regex : regexes) {
+            if (regex.matcher(projectName).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the exclusions this matcher was compiled from.
+     */
+    ImmutableSet<String> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ExclusionMatcher && entries.equals(((ExclusionMatcher) obj).entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+
+}
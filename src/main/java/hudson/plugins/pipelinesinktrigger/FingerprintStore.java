@@ -0,0 +1,148 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+import hudson.util.AtomicFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * In-memory holder of the pipeline build context fingerprint (as of the last scheduled build of the sink) of a
+ * {@link BuildGraphPipelineSinkTrigger}, backed by a file under the root directory of the trigger job.
+ *
+ * <p>The file is read lazily (once), and changes are written behind on a dedicated writer thread (rather than on the Hudson cron thread, so
+ * a slow file system, e.g. NFS, does not delay the other timer triggers), coalescing bursts of updates into a single write. The file is
+ * replaced atomically (via a temporary file), so a crash during a write cannot leave a truncated fingerprint.</p>
+ */
+final class FingerprintStore {
+
+    private static final Logger LOGGER = Logger.getLogger(FingerprintStore.class.getName());
+
+    /**
+     * Delay (in milliseconds) before a changed fingerprint is written to disk.
+     */
+    private static final long WRITE_BEHIND_DELAY = Long.getLong(FingerprintStore.class.getName() + ".writeBehindDelay", 1000L);
+
+    private static final ScheduledExecutorService WRITER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Pipeline sink trigger fingerprint writer").setDaemon(true).build());
+
+    private final AbstractProject<?,?> job;
+    private volatile String fileName;
+
+    private final Object writeLock = new Object();
+
+    private boolean loaded;
+    private PipelineFingerprint fingerprint;
+    private boolean dirty;
+    private boolean flushScheduled;
+
+    FingerprintStore(AbstractProject<?,?> job, String fileName) {
+        this.job = job;
+        this.fileName = fileName;
+    }
+
+    /**
+     * @return the current fingerprint (which must not be modified), or {@code null} if none has been recorded yet.
+     */
+    synchronized PipelineFingerprint get() throws IOException {
+        if (!loaded) {
+            final File file = getFile();
+            // Fingerprints recorded by a previous version of this plugin (or truncated by an interrupted non-atomic write) are discarded.
+            fingerprint = file.exists() ? PipelineFingerprint.parse(Files.toString(file, Charsets.UTF_8)) : null;
+            loaded = true;
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Updates the current fingerprint (with a copy of the specified one), and schedules it to be written to disk.
+     */
+    synchronized void set(PipelineFingerprint newFingerprint) {
+        fingerprint = newFingerprint.copy();
+        loaded = true;
+        dirty = true;
+        if (!flushScheduled) {
+            flushScheduled = true;
+            WRITER.schedule(new Runnable() {
+                public void run() {
+                    try {
+                        flush();
+                    }
+                    catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Failed to persist the pipeline build context fingerprint", e);
+                    }
+                }
+            }, WRITE_BEHIND_DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the current fingerprint to disk if it has changed since the last write.
+     */
+    void flush() {
+        synchronized (writeLock) {
+            final String value;
+            synchronized (this) {
+                flushScheduled = false;
+                if (!dirty) {
+                    return;
+                }
+                value = fingerprint.serialize();
+                dirty = false;
+            }
+            final File file = getFile();
+            if (!file.getParentFile().isDirectory()) {
+                return; // The trigger job has been deleted.
+            }
+            try {
+                final AtomicFileWriter writer = new AtomicFileWriter(file);
+                try {
+                    writer.write(value);
+                    writer.commit();
+                }
+                finally {
+                    writer.abort();
+                }
+            }
+            catch (IOException e) {
+                synchronized (this) {
+                    dirty = true;
+                }
+                LOGGER.log(Level.WARNING, String.format("Failed to persist the pipeline build context fingerprint to %s", file), e);
+            }
+        }
+    }
+
+    /**
+     * Moves the fingerprint file to the specified file name (e.g. a file named after projects that have been renamed), so the recorded
+     * fingerprint is still found after a restart.
+     */
+    void moveTo(String newFileName) {
+        synchronized (writeLock) {
+            final File from = getFile();
+            fileName = newFileName;
+            final File to = getFile();
+            if (from.equals(to) || !from.exists()) {
+                return;
+            }
+            if ((to.exists() && !to.delete()) || !from.renameTo(to)) {
+                LOGGER.log(Level.WARNING, String.format("Failed to move the pipeline build context fingerprint from %s to %s", from, to));
+            }
+        }
+    }
+
+    private File getFile() {
+        // Resolved on every access since the root directory changes when the trigger job is renamed.
+        return new File(job.getRootDir(), fileName);
+    }
+
+}
@@ -0,0 +1,188 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Matches names against a set of glob patterns (where <code>*</code> matches any sequence of characters, and <code>?</code> any single
+ * character) in a single left-to-right pass over the name, whatever the number of patterns.
+ *
+ * <p>The patterns are compiled into a nondeterministic automaton (one state per position within each pattern), which is turned into a
+ * deterministic one lazily, as names are matched: each set of nondeterministic states reached is interned as a deterministic state, along
+ * with its transitions on the characters seen so far. Once the states and transitions needed by the project names have been built, matching
+ * a name costs a single hash lookup per character, i.e. O(name length). The number of deterministic states is bounded (see
+ * {@link #MAX_STATES}): beyond that, the transitions are computed on the fly (in O(name length &times; pattern length) overall) rather than
+ * cached.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+final class GlobAutomaton {
+
+    /**
+     * Maximum number of deterministic states built (and cached) by an automaton.
+     */
+    static final int MAX_STATES = Integer.getInteger(GlobAutomaton.class.getName() + ".maxStates", 10000);
+
+    private static final int STAR = -1;
+    private static final int ANY = -2;
+    private static final int END = -3;
+
+    /**
+     * The tokens of all the patterns, each pattern being terminated by {@link #END}: a nondeterministic state is the index of the token it
+     * is about to match (a state on {@link #END} being accepting).
+     */
+    private final int[] tokens;
+    private final State initial;
+    private final ConcurrentMap<StateKey, State> states = new ConcurrentHashMap<StateKey, State>();
+    /**
+     * Target of the cached transitions to the dead state (no name can match anymore), since a concurrent map cannot hold {@code null} values.
+     */
+    private final State dead = new State(new BitSet());
+
+    GlobAutomaton(Collection<String> globs) {
+        int length = 0;
+        for (String glob : globs) {
+            length += glob.length() + 1;
+        }
+        tokens = new int[length];
+        final BitSet starts = new BitSet(length);
+        int position = 0;
+        for (String glob : globs) {
+            starts.set(position);
+            for (int i = 0; i < glob.length(); i++) {
+                final char c = glob.charAt(i);
+                tokens[position++] = c == '*' ? STAR : (c == '?' ? ANY : c);
+            }
+            tokens[position++] = END;
+        }
+        initial = intern(close(starts));
+    }
+
+    boolean matches(String name) {
+        State state = initial;
+        for (int i = 0; i < name.length() && state != null; i++) {
+            state = state.next(name.charAt(i));
+        }
+        return state != null && state.accepting;
+    }
+
+    /**
+     * Adds to the specified states the states reachable without consuming a character (a <code>*</code> may match no character at all).
+     */
+    private BitSet close(BitSet nfaStates) {
+        for (int s = nfaStates.nextSetBit(0); s >= 0; s = nfaStates.nextSetBit(s + 1)) {
+            if (tokens[s] == STAR) {
+                nfaStates.set(s + 1); // Visited next, since s + 1 > s.
+            }
+        }
+        return nfaStates;
+    }
+
+    private BitSet step(BitSet nfaStates, char c) {
+        final BitSet next = new BitSet(tokens.length);
+        for (int s = nfaStates.nextSetBit(0); s >= 0; s = nfaStates.nextSetBit(s + 1)) {
+            final int token = tokens[s];
+            if (token == STAR) {
+                next.set(s);
+            }
+            else if (token == ANY || token == c) {
+                next.set(s + 1);
+            }
+        }
+        return close(next);
+    }
+
+    /**
+     * @return the deterministic state of the specified set of nondeterministic states, or {@code null} if the set is empty (no name can
+     * match anymore).
+     */
+    private State intern(BitSet nfaStates) {
+        if (nfaStates.isEmpty()) {
+            return null;
+        }
+        final StateKey key = new StateKey(nfaStates);
+        State state = states.get(key);
+        if (state == null) {
+            state = new State(nfaStates);
+            if (states.size() < MAX_STATES) {
+                final State existing = states.putIfAbsent(key, state);
+                if (existing != null) {
+                    state = existing;
+                }
+            }
+            else {
+                state.cached = false;
+            }
+        }
+        return state;
+    }
+
+    private final class State {
+
+        private final BitSet nfaStates;
+        private final boolean accepting;
+        private final ConcurrentMap<Character, State> transitions = new ConcurrentHashMap<Character, State>();
+        private volatile boolean cached = true;
+
+        State(BitSet nfaStates) {
+            this.nfaStates = nfaStates;
+            boolean accepts = false;
+            for (int s = nfaStates.nextSetBit(0); s >= 0 && !accepts; s = nfaStates.nextSetBit(s + 1)) {
+                accepts = tokens[s] == END;
+            }
+            this.accepting = accepts;
+        }
+
+        State next(char c) {
+            final Character key = Character.valueOf(c);
+            State next = transitions.get(key);
+            if (next == null && !transitions.containsKey(key)) {
+                next = intern(step(nfaStates, c));
+                if (cached && (next == null || next.cached)) {
+                    if (next == null) {
+                        transitions.putIfAbsent(key, dead);
+                    }
+                    else {
+                        transitions.putIfAbsent(key, next);
+                    }
+                }
+            }
+            return next == dead ? null : next;
+        }
+
+    }
+
+    private static final class StateKey {
+
+        private final long[] words;
+        private final int hashCode;
+
+        StateKey(BitSet nfaStates) {
+            this.words = toWords(nfaStates);
+            this.hashCode = Arrays.hashCode(words);
+        }
+
+        private static long[] toWords(BitSet bits) {
+            final long[] words = new long[(bits.length() + 63) / 64];
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                words[i / 64] |= 1L << (i % 64);
+            }
+            return words;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StateKey && Arrays.equals(words, ((StateKey) obj).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
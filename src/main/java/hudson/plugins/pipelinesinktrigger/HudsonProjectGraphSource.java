@@ -0,0 +1,49 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ProjectGraphSource} backed by the downstream projects of the live Hudson model. Disabled and excluded projects (and hence, the
+ * projects only reachable through them) are not part of the build pipeline graph.
+ */
+final class HudsonProjectGraphSource implements ProjectGraphSource<AbstractProject<?,?>> {
+
+    private final ExclusionMatcher exclusions;
+
+    private final List<AbstractProject<?,?>> disabledProjects = new ArrayList<AbstractProject<?,?>>();
+
+    HudsonProjectGraphSource(ExclusionMatcher exclusions) {
+        this.exclusions = exclusions;
+    }
+
+    public String getName(AbstractProject<?,?> node) {
+        return node.getName();
+    }
+
+    @SuppressWarnings("rawtypes")
+    public List<AbstractProject<?,?>> getDownstream(AbstractProject<?,?> node) {
+        final List<AbstractProject<?,?>> children = new ArrayList<AbstractProject<?,?>>();
+        for (AbstractProject<?,?> child : (List<AbstractProject>) node.getDownstreamProjects()) {
+            if (exclusions.matches(child.getName())) {
+                continue;
+            }
+            if (child.isDisabled()) {
+                disabledProjects.add(child);
+                continue;
+            }
+            children.add(child);
+        }
+        return children;
+    }
+
+    /**
+     * @return the downstream projects that were left out of the build pipeline graph because they were disabled at the time.
+     */
+    List<AbstractProject<?,?>> getDisabledProjects() {
+        return disabledProjects;
+    }
+
+}
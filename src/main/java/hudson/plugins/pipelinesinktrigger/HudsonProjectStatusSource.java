@@ -0,0 +1,44 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+
+/**
+ * {@link ProjectStatusSource} backed by the live Hudson model, the activity of the projects being checked against an {@link ActivitySnapshot}.
+ *
+ * <p>An instance is shared by all the triggers evaluated during a {@link PipelineSweep}. The status of the last build of a project is read
+ * from the {@link LastBuildStatusCache} (rather than from the build records of the project).</p>
+ */
+final class HudsonProjectStatusSource implements ProjectStatusSource<AbstractProject<?,?>> {
+
+    private final ActivitySnapshot activity;
+    private final long captureTime;
+
+    HudsonProjectStatusSource(ActivitySnapshot activity) {
+        this.activity = activity;
+        this.captureTime = System.currentTimeMillis();
+    }
+
+    static HudsonProjectStatusSource capture() {
+        return new HudsonProjectStatusSource(ActivitySnapshot.capture());
+    }
+
+    /**
+     * @return the time elapsed (in milliseconds) since the activity snapshot was captured.
+     */
+    long getAge() {
+        return System.currentTimeMillis() - captureTime;
+    }
+
+    public String getFullName(AbstractProject<?,?> node) {
+        return node.getFullName();
+    }
+
+    public boolean isActive(AbstractProject<?,?> node) {
+        return activity.isActive(node);
+    }
+
+    public BuildStatus getLastBuildStatus(AbstractProject<?,?> node) {
+        return LastBuildStatusCache.get(node);
+    }
+
+}
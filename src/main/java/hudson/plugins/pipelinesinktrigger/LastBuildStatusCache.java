@@ -0,0 +1,79 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.Job;
+import hudson.model.Run;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide, in-memory table of the status of the last build of each project (id, number, and result), kept current by the
+ * {@link BuildGraphPipelineSinkTrigger.DefaultRunListener}, so that the evaluation of a build pipeline graph does not need to load the build
+ * records of its projects (i.e. possibly deserialize <code>build.xml</code> files from disk) on every poll.
+ *
+ * <p>The entry of a project is seeded lazily from {@link Job#getLastBuild()} the first time it is needed. Since the listener events take
+ * precedence over the seeded entries (a seeded entry never replaces an existing one), a seed racing with the completion of a build cannot
+ * overwrite the more recent status. Likewise, the status of a build never replaces the status of a build with a higher number (e.g. when
+ * concurrent builds of a project complete out of order, or the completion of a build is notified after the start of the next one).</p>
+ */
+final class LastBuildStatusCache {
+
+    private static final ConcurrentMap<Job<?,?>, BuildStatus> STATUSES = new ConcurrentHashMap<Job<?,?>, BuildStatus>();
+
+    private LastBuildStatusCache() {
+    }
+
+    static BuildStatus get(Job<?,?> job) {
+        BuildStatus status = STATUSES.get(job);
+        if (status == null) {
+            status = BuildStatus.of(job.getLastBuild());
+            final BuildStatus existing = STATUSES.putIfAbsent(job, status);
+            if (existing != null) {
+                status = existing;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Called when a build starts: the build is now the last build of its project, and has no result yet.
+     */
+    static void onStarted(Run<?,?> build) {
+        putIfMoreRecent(STATUSES, build.getParent(), new BuildStatus(build.getId(), build.getNumber(), null));
+    }
+
+    /**
+     * Called when a build completes (i.e. its result is known).
+     */
+    static void onCompleted(Run<?,?> build) {
+        putIfMoreRecent(STATUSES, build.getParent(), BuildStatus.of(build));
+    }
+
+    /**
+     * Records the specified status, unless the recorded status is that of a build with a higher number.
+     */
+    static <K> void putIfMoreRecent(ConcurrentMap<K, BuildStatus> statuses, K key, BuildStatus status) {
+        while (true) {
+            final BuildStatus current = statuses.get(key);
+            if (current == null) {
+                if (statuses.putIfAbsent(key, status) == null) {
+                    return;
+                }
+            }
+            else if (current.getNumber() > status.getNumber()) {
+                return; // A more recent build has already been recorded.
+            }
+            else if (statuses.replace(key, current, status)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Called when a build record is deleted (which may have been the last build of its project), or a project is deleted or renamed.
+     */
+    static void invalidate(Job<?,?> job) {
+        STATUSES.remove(job);
+    }
+
+}
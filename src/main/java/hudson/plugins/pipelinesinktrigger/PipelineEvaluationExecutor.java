@@ -0,0 +1,247 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Dedicated, bounded pool of worker threads on which the evaluations of the {@link BuildGraphPipelineSinkTrigger} instances are run, so that
+ * a slow evaluation (e.g. a huge build pipeline graph, or a slow disk) does not delay the other timer triggers sharing the Hudson cron thread.
+ *
+ * <ul>
+ *   <li>At most one evaluation per trigger is in flight: a tick received while an evaluation is queued is dropped, and ticks received while
+ *   an evaluation is running are coalesced into a single follow-up evaluation.</li>
+ *   <li>Each evaluation is given a time budget, after which its worker thread is interrupted (the evaluation checks for interruption
+ *   cooperatively, and gives up by throwing a {@link java.util.concurrent.CancellationException}).</li>
+ * </ul>
+ */
+final class PipelineEvaluationExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(PipelineEvaluationExecutor.class.getName());
+
+    private static final int THREADS = Integer.getInteger(PipelineEvaluationExecutor.class.getName() + ".threads", 2);
+
+    private static final int QUEUE_CAPACITY = Integer.getInteger(PipelineEvaluationExecutor.class.getName() + ".queueCapacity", 1000);
+
+    /**
+     * Maximum age (in milliseconds) of the status of the projects an evaluation is started with: an evaluation that has been queued for longer
+     * than that (e.g. behind slow evaluations) captures a fresh status rather than deciding from an outdated one.
+     */
+    private static final long MAX_STATUS_AGE = Long.getLong(PipelineEvaluationExecutor.class.getName() + ".maxStatusAge", 5000L);
+
+    /**
+     * Time budget (in milliseconds) of a single evaluation.
+     */
+    static final long TIMEOUT = Long.getLong(PipelineEvaluationExecutor.class.getName() + ".timeout", 60000L);
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY),
+            new ThreadFactoryBuilder().setNameFormat("Pipeline sink trigger evaluation #%d").setDaemon(true).build());
+
+    /**
+     * Minimum number of nodes of a build pipeline graph for which the status of the nodes is scanned in parallel (on {@link #NODE_SCANNERS}).
+     */
+    static final int PARALLEL_THRESHOLD = Integer.getInteger(PipelineEvaluationExecutor.class.getName() + ".parallelThreshold", 500);
+
+    private static final int SCAN_THREADS = Integer.getInteger(PipelineEvaluationExecutor.class.getName() + ".scanThreads",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Pool of worker threads scanning the status of the nodes of large build pipeline graphs in parallel (distinct from the pool running the
+     * evaluations themselves, which wait for the scans to complete).
+     */
+    static final ExecutorService NODE_SCANNERS;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Pipeline sink trigger evaluation watchdog").setDaemon(true).build());
+
+    private static final ConcurrentMap<BuildGraphPipelineSinkTrigger, Evaluation> IN_FLIGHT =
+            new ConcurrentHashMap<BuildGraphPipelineSinkTrigger, Evaluation>();
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+        final ThreadPoolExecutor nodeScanners = new ThreadPoolExecutor(SCAN_THREADS, SCAN_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("Pipeline sink trigger node scan #%d").setDaemon(true).build());
+        nodeScanners.allowCoreThreadTimeOut(true);
+        NODE_SCANNERS = nodeScanners;
+    }
+
+    private PipelineEvaluationExecutor() {
+    }
+
+    /**
+     * Dispatches an evaluation of the specified trigger, unless one is already in flight (in which case the request is coalesced).
+     *
+     * @param statusSource the status of the projects the trigger is to be evaluated against (usually shared by all the triggers of a
+     * {@link PipelineSweep}).
+     */
+    static void submit(BuildGraphPipelineSinkTrigger trigger, HudsonProjectStatusSource statusSource) {
+        while (true) {
+            final Evaluation inFlight = IN_FLIGHT.get(trigger);
+            if (inFlight != null) {
+                if (inFlight.coalesce(statusSource)) {
+                    return;
+                }
+                IN_FLIGHT.remove(trigger, inFlight); // Completed in the meantime.
+                continue;
+            }
+            final Evaluation evaluation = new Evaluation(trigger, statusSource);
+            if (IN_FLIGHT.putIfAbsent(trigger, evaluation) == null) {
+                evaluation.dispatch();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the specified task (e.g. a {@link PipelineSweep}) on the evaluation threads.
+     *
+     * @throws RejectedExecutionException if too many evaluations are pending.
+     */
+    static void execute(Runnable task) {
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * Cancels the in-flight evaluation (if any) of the specified trigger.
+     */
+    static void cancel(BuildGraphPipelineSinkTrigger trigger) {
+        final Evaluation inFlight = IN_FLIGHT.remove(trigger);
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+    }
+
+    private static final class Evaluation implements Runnable {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int RUNNING_WITH_FOLLOW_UP = 2;
+        private static final int DONE = 3;
+
+        private final BuildGraphPipelineSinkTrigger trigger;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private volatile HudsonProjectStatusSource statusSource;
+
+        // Guarded by this.
+        private Future<?> future;
+        private Thread runner;
+
+        public Evaluation(BuildGraphPipelineSinkTrigger trigger, HudsonProjectStatusSource statusSource) {
+            this.trigger = trigger;
+            this.statusSource = statusSource;
+        }
+
+        /**
+         * @return {@code true} if the request for another evaluation has been coalesced with this one, or {@code false} if this evaluation is done.
+         */
+        boolean coalesce(HudsonProjectStatusSource statusSource) {
+            // The (follow-up) evaluation uses the most recent status.
+            this.statusSource = statusSource;
+            while (true) {
+                final int current = state.get();
+                if (current == QUEUED || current == RUNNING_WITH_FOLLOW_UP) {
+                    return true;
+                }
+                if (current == DONE) {
+                    return false;
+                }
+                if (state.compareAndSet(RUNNING, RUNNING_WITH_FOLLOW_UP)) {
+                    return true;
+                }
+            }
+        }
+
+        synchronized void dispatch() {
+            try {
+                future = EXECUTOR.submit(this);
+            }
+            catch (RejectedExecutionException e) {
+                state.set(DONE);
+                IN_FLIGHT.remove(trigger, this);
+                LOGGER.log(Level.WARNING, Messages.BuildGraphPipelineSinkTrigger_TooManyPendingEvaluations(trigger.getSinkProjectName()));
+            }
+        }
+
+        synchronized void cancel() {
+            state.set(DONE);
+            if (future != null) {
+                future.cancel(false);
+            }
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+
+        public void run() {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return; // Cancelled while queued.
+            }
+            try {
+                while (true) {
+                    evaluateWithinTimeBudget();
+                    if (state.compareAndSet(RUNNING, DONE)) {
+                        break;
+                    }
+                    if (!state.compareAndSet(RUNNING_WITH_FOLLOW_UP, RUNNING)) {
+                        break; // Cancelled.
+                    }
+                }
+            }
+            catch (RuntimeException e) {
+                // E.g. the capture of a fresh status failed (the evaluation itself swallows its exceptions).
+                LOGGER.log(Level.SEVERE, "Encountered an error during trigger execution.", e);
+            }
+            finally {
+                // Whatever happened, the next request for an evaluation of the trigger must not be coalesced into this one.
+                state.set(DONE);
+                IN_FLIGHT.remove(trigger, this);
+            }
+        }
+
+        private void evaluateWithinTimeBudget() {
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            final ScheduledFuture<?> watchdog = WATCHDOG.schedule(new Runnable() {
+                public void run() {
+                    synchronized (Evaluation.this) {
+                        if (runner != null) {
+                            runner.interrupt();
+                        }
+                    }
+                }
+            }, TIMEOUT, TimeUnit.MILLISECONDS);
+            try {
+                HudsonProjectStatusSource source = statusSource;
+                if (source.getAge() > MAX_STATUS_AGE) {
+                    source = HudsonProjectStatusSource.capture();
+                }
+                trigger.evaluate(source);
+            }
+            finally {
+                watchdog.cancel(false);
+                synchronized (this) {
+                    runner = null;
+                }
+                Thread.interrupted(); // Do not leak the interruption (if any) to the next task of the worker thread.
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,279 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Decides if a build of the sink should be scheduled, given the nodes of a build pipeline graph, their status, and the pipeline build context
+ * fingerprint as of the last scheduled build of the sink (see {@link BuildGraphPipelineSinkTrigger} for the rules).
+ *
+ * <p>The nodes are scanned in the order they are given (i.e. in topological order, see {@link PipelineGraphCache.CachedGraph#getProjects()}),
+ * and the scan stops at the first blocking node: a node that is active, or (unless non-successful builds are ignored) whose last build was not
+ * successful. Hence an upstream failure is reported without the status of the downstream nodes being examined.</p>
+ *
+ * <p>The evaluator has no side effects other than updating the current fingerprint of the graph: acting on the {@link Decision} (i.e. recording
+ * the new fingerprint, and scheduling the build of the sink) is left to the caller. The evaluation gives up (by throwing a
+ * {@link CancellationException}) as soon as the evaluating thread is interrupted.</p>
+ *
+ * <p>The status of the nodes of large graphs can be scanned in parallel (see {@link #PipelineEvaluator(ProjectStatusSource, boolean,
+ * ExecutorService, int)}), the scan giving up as soon as a blocking node is found. The status of the nodes is then merged in the order of the
+ * nodes, so the fingerprint and the decision are the same as for a sequential scan.</p>
+ *
+ * @param <T> the type of the nodes.
+ */
+final class PipelineEvaluator<T> {
+
+    enum Outcome {
+        /** A node is running, or scheduled in the build queue. */
+        ACTIVE,
+        /** The last build of a node was not successful (the first one in the order of the nodes being reported). */
+        UNSTABLE,
+        /** There is no previous fingerprint to compare against (the current fingerprint should be recorded). */
+        NO_PREVIOUS_FINGERPRINT,
+        /** No upstream dependency build changes since the last scheduled build of the sink. */
+        UNCHANGED,
+        /** Upstream dependency build changes were detected (a build of the sink should be scheduled). */
+        CHANGED
+    }
+
+    /**
+     * Number of chunks the nodes are split into when scanned in parallel (each chunk being scanned by a single task).
+     */
+    private static final int PARALLEL_CHUNKS = 16;
+
+    private final ProjectStatusSource<T> statusSource;
+    private final boolean ignoreNonSuccessfulUpstreamDependencyBuilds;
+    private final ExecutorService scanExecutor;
+    private final int parallelThreshold;
+
+    PipelineEvaluator(ProjectStatusSource<T> statusSource, boolean ignoreNonSuccessfulUpstreamDependencyBuilds) {
+        this(statusSource, ignoreNonSuccessfulUpstreamDependencyBuilds, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param scanExecutor the executor on which the status of the nodes is scanned in parallel (the {@code statusSource} must then be
+     * thread-safe), or {@code null} for always scanning sequentially.
+     * @param parallelThreshold the minimum number of nodes for which the status of the nodes is scanned in parallel.
+     */
+    PipelineEvaluator(ProjectStatusSource<T> statusSource, boolean ignoreNonSuccessfulUpstreamDependencyBuilds, ExecutorService scanExecutor,
+            int parallelThreshold) {
+        this.statusSource = statusSource;
+        this.ignoreNonSuccessfulUpstreamDependencyBuilds = ignoreNonSuccessfulUpstreamDependencyBuilds;
+        this.scanExecutor = scanExecutor;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @param nodes the nodes of the build pipeline graph to evaluate.
+     * @param fingerprint the current fingerprint of the graph (updated with the last build of each node, unless a blocking node was found).
+     * @param prevFingerprint the fingerprint as of the last scheduled build of the sink, or {@code null} if none has been recorded yet.
+     */
+    Decision evaluate(List<T> nodes, PipelineFingerprint fingerprint, PipelineFingerprint prevFingerprint) {
+        final String[] nodeNames = new String[nodes.size()];
+        final BuildStatus[] lastBuildStatuses = new BuildStatus[nodes.size()];
+        final int blockingNode = scanExecutor != null && nodes.size() >= parallelThreshold
+                ? scanInParallel(nodes, nodeNames, lastBuildStatuses)
+                : scan(nodes, 0, nodes.size(), nodeNames, lastBuildStatuses, null);
+        if (blockingNode >= 0) {
+            if (lastBuildStatuses[blockingNode] == null || lastBuildStatuses[blockingNode].isCompleting()) {
+                return newActiveDecision(nodeNames[blockingNode]);
+            }
+            return new Decision(Outcome.UNSTABLE, null, Collections.singletonList(nodeNames[blockingNode]), Collections.<String>emptyList());
+        }
+
+        // Merge the status of the nodes in order, so the outcome does not depend on how the nodes were scanned.
+        List<String> nonSuccessfulNodeNames = Collections.emptyList();
+        for (int i = 0; i < nodeNames.length; i++) {
+            if (lastBuildStatuses[i].isNonSuccessful()) {
+                if (nonSuccessfulNodeNames.isEmpty()) {
+                    nonSuccessfulNodeNames = Lists.newArrayList();
+                }
+                nonSuccessfulNodeNames.add(nodeNames[i]);
+            }
+            // Capture a contextual "fingerprint" (note: the fingerprint is composed of the node's full name, and last build id (if present), so
+            // if a node is renamed during its existence, then it can impact the detection of changes between consecutive evaluations). Only the
+            // nodes whose last build changed since the previous evaluation contribute a new hash to the fingerprint.
+            fingerprint.update(nodeNames[i], lastBuildStatuses[i].getBuildId());
+        }
+        fingerprint.retainAll(Arrays.asList(nodeNames));
+
+        if (prevFingerprint == null) {
+            return new Decision(Outcome.NO_PREVIOUS_FINGERPRINT, null, nonSuccessfulNodeNames, Collections.<String>emptyList());
+        }
+        if (fingerprint.hasSameDigestAs(prevFingerprint)) {
+            return new Decision(Outcome.UNCHANGED, null, nonSuccessfulNodeNames, Collections.<String>emptyList());
+        }
+        return new Decision(Outcome.CHANGED, null, nonSuccessfulNodeNames, fingerprint.getChangedNodes(prevFingerprint));
+    }
+
+    /**
+     * Scans the nodes in the range {@code [from, to)}, recording their name and the status of their last build ({@code null} for an active
+     * node), until a blocking node is found.
+     *
+     * @param blockingNodeFound the flag shared by the tasks of a parallel scan (a scan gives up as soon as any task found a blocking node), or
+     * {@code null} for a sequential scan.
+     * @return the index of the blocking node found by this scan, or {@code -1} if none.
+     */
+    private int scan(List<T> nodes, int from, int to, String[] nodeNames, BuildStatus[] lastBuildStatuses, AtomicBoolean blockingNodeFound) {
+        for (int i = from; i < to; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The evaluation of the build pipeline graph has been cancelled.");
+            }
+            if (blockingNodeFound != null && blockingNodeFound.get()) {
+                return -1;
+            }
+            final T node = nodes.get(i);
+            nodeNames[i] = statusSource.getFullName(node);
+            lastBuildStatuses[i] = statusSource.isActive(node) ? null : statusSource.getLastBuildStatus(node);
+            if (isBlocking(lastBuildStatuses[i])) {
+                if (blockingNodeFound != null) {
+                    blockingNodeFound.set(true);
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBlocking(BuildStatus lastBuildStatus) {
+        // A build without a result yet is still completing.
+        return lastBuildStatus == null || lastBuildStatus.isCompleting()
+                || (!ignoreNonSuccessfulUpstreamDependencyBuilds && lastBuildStatus.isNonSuccessful());
+    }
+
+    /**
+     * Scans the nodes in chunks on the {@link #scanExecutor}, all the chunks giving up as soon as a blocking node is found.
+     *
+     * @return the index of a blocking node (the first one in the order of the nodes, amongst those found before the scan gave up), or
+     * {@code -1} if none.
+     */
+    private int scanInParallel(final List<T> nodes, final String[] nodeNames, final BuildStatus[] lastBuildStatuses) {
+        final AtomicBoolean blockingNodeFound = new AtomicBoolean();
+        final int chunkSize = (nodes.size() + PARALLEL_CHUNKS - 1) / PARALLEL_CHUNKS;
+        final List<Callable<Integer>> tasks = Lists.newArrayListWithCapacity(PARALLEL_CHUNKS);
+        for (int from = 0; from < nodes.size(); from += chunkSize) {
+            final int chunkFrom = from;
+            final int chunkTo = Math.min(from + chunkSize, nodes.size());
+            tasks.add(new Callable<Integer>() {
+                public Integer call() {
+                    return scan(nodes, chunkFrom, chunkTo, nodeNames, lastBuildStatuses, blockingNodeFound);
+                }
+            });
+        }
+        try {
+            // The completion of the tasks (which happens-before the return of invokeAll) publishes the recorded names and statuses.
+            for (Future<Integer> result : scanExecutor.invokeAll(tasks)) {
+                final int blockingNode = result.get();
+                if (blockingNode >= 0) {
+                    return blockingNode;
+                }
+            }
+            return -1;
+        }
+        catch (InterruptedException e) {
+            // The pending tasks have been cancelled by invokeAll.
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The evaluation of the build pipeline graph has been cancelled.");
+        }
+        catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static Decision newActiveDecision(String activeNodeName) {
+        return new Decision(Outcome.ACTIVE, activeNodeName, Collections.<String>emptyList(), Collections.<String>emptyList());
+    }
+
+    /**
+     * The outcome of the evaluation of a build pipeline graph.
+     */
+    static final class Decision {
+
+        private final Outcome outcome;
+        private final String activeNodeName;
+        private final List<String> nonSuccessfulNodeNames;
+        private final List<String> changedNodeNames;
+
+        Decision(Outcome outcome, String activeNodeName, List<String> nonSuccessfulNodeNames, List<String> changedNodeNames) {
+            this.outcome = outcome;
+            this.activeNodeName = activeNodeName;
+            this.nonSuccessfulNodeNames = nonSuccessfulNodeNames;
+            this.changedNodeNames = changedNodeNames;
+        }
+
+        Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the name of the node that was found to be active, or {@code null} if the graph is inactive.
+         */
+        String getActiveNodeName() {
+            return activeNodeName;
+        }
+
+        /**
+         * @return the names of the nodes whose last build was not successful (possibly ignored).
+         */
+        List<String> getNonSuccessfulNodeNames() {
+            return nonSuccessfulNodeNames;
+        }
+
+        /**
+         * @return the names of the nodes whose last build changed since the last scheduled build of the sink (only if {@link Outcome#CHANGED}).
+         */
+        List<String> getChangedNodeNames() {
+            return changedNodeNames;
+        }
+
+        /**
+         * Resolves the outcome of the evaluation of a root/sink pair from this decision, holding a change back until the fingerprint of the
+         * graph has settled (see {@link SettleWindow}). Shared by {@link BuildGraphPipelineSinkTrigger} and {@code PipelineReplay}, so the
+         * replayed decisions are the ones of the trigger. Acting on the outcome is left to the caller: recording the current fingerprint upon
+         * {@link TriggerMetrics.Outcome#BASELINE} and {@link TriggerMetrics.Outcome#TRIGGERED}, scheduling the build of the sink upon the
+         * latter, and scheduling an evaluation once the window has elapsed (see {@link SettleWindow#getRemaining(long)}) upon
+         * {@link TriggerMetrics.Outcome#SETTLING}.
+         *
+         * @param settleWindow the settle window of the pair, reset unless a change is detected, or settling.
+         * @param fingerprint the current fingerprint of the graph (as updated by the evaluation).
+         */
+        TriggerMetrics.Outcome resolveOutcome(SettleWindow settleWindow, PipelineFingerprint fingerprint, long now) {
+            if (outcome != Outcome.CHANGED) {
+                // The build pipeline graph is either active, unstable, or has not changed: any pending settle window is void.
+                settleWindow.reset();
+            }
+            switch (outcome) {
+                case ACTIVE:
+                    return TriggerMetrics.Outcome.ACTIVE;
+                case UNSTABLE:
+                    return TriggerMetrics.Outcome.UNSTABLE;
+                case NO_PREVIOUS_FINGERPRINT:
+                    return TriggerMetrics.Outcome.BASELINE;
+                case UNCHANGED:
+                    return TriggerMetrics.Outcome.UNCHANGED;
+                default:
+                    break;
+            }
+            // A change has been detected. If a settle period is configured, then wait for the build pipeline graph to stay inactive with the
+            // same fingerprint for that long (the changes detected in the meantime are all accounted for by the single build eventually
+            // scheduled).
+            if (settleWindow.offer(fingerprint.getDigest(), now) > 0) {
+                return TriggerMetrics.Outcome.SETTLING;
+            }
+            settleWindow.reset();
+            return TriggerMetrics.Outcome.TRIGGERED;
+        }
+
+    }
+
+}
@@ -0,0 +1,165 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Contextual "fingerprint" of a build pipeline graph, composed of the last build id (if present) of each node of the graph.
+ *
+ * <p>Each node contributes the SHA-1 hash of its name and last build id to the combined digest, which is the XOR of all contributions. The
+ * digest is therefore independent of the traversal order, and is updated incrementally: only the nodes whose last build id changed since the
+ * previous update are re-hashed.</p>
+ */
+final class PipelineFingerprint {
+
+    private static final String FORMAT_VERSION = "v2";
+
+    private static final int DIGEST_LENGTH = 20;
+
+    private final Map<String, NodeState> nodes;
+    private final byte[] digest;
+
+    PipelineFingerprint() {
+        this(Maps.<String, NodeState>newHashMap(), new byte[DIGEST_LENGTH]);
+    }
+
+    private PipelineFingerprint(Map<String, NodeState> nodes, byte[] digest) {
+        this.nodes = nodes;
+        this.digest = digest;
+    }
+
+    /**
+     * Records the last build id of the specified node.
+     *
+     * @param buildId the id of the last build of the node, or an empty string if the node has never been built.
+     * @return {@code true} if the last build id of the node changed, otherwise {@code false}.
+     */
+    boolean update(String nodeName, String buildId) {
+        final NodeState previous = nodes.get(nodeName);
+        if (previous != null) {
+            if (previous.buildId.equals(buildId)) {
+                return false;
+            }
+            xor(previous.hash);
+        }
+        final NodeState current = new NodeState(nodeName, buildId);
+        nodes.put(nodeName, current);
+        xor(current.hash);
+        return true;
+    }
+
+    /**
+     * Removes the nodes that are no longer part of the build pipeline graph.
+     */
+    void retainAll(Collection<String> nodeNames) {
+        if (nodes.size() <= nodeNames.size()) {
+            return; // Every recorded node has been updated as part of the current graph.
+        }
+        final Set<String> retained = (nodeNames instanceof Set) ? (Set<String>) nodeNames : new HashSet<String>(nodeNames);
+        final Iterator<Map.Entry<String, NodeState>> itr = nodes.entrySet().iterator();
+        while (itr.hasNext()) {
+            final Map.Entry<String, NodeState> entry = itr.next();
+            if (!retained.contains(entry.getKey())) {
+                xor(entry.getValue().hash);
+                itr.remove();
+            }
+        }
+    }
+
+    boolean hasSameDigestAs(PipelineFingerprint other) {
+        return Arrays.equals(digest, other.digest);
+    }
+
+    String getDigest() {
+        return FORMAT_VERSION + ":" + Hex.encodeHexString(digest);
+    }
+
+    /**
+     * @return the (sorted) names of the nodes whose last build id differs from the specified fingerprint, including the nodes that are only
+     * part of one of the two fingerprints.
+     */
+    List<String> getChangedNodes(PipelineFingerprint since) {
+        final Set<String> changed = Sets.newTreeSet();
+        for (Map.Entry<String, NodeState> entry : nodes.entrySet()) {
+            final NodeState other = since.nodes.get(entry.getKey());
+            if (other == null || !other.buildId.equals(entry.getValue().buildId)) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String nodeName : since.nodes.keySet()) {
+            if (!nodes.containsKey(nodeName)) {
+                changed.add(nodeName);
+            }
+        }
+        return Lists.newArrayList(changed);
+    }
+
+    PipelineFingerprint copy() {
+        return new PipelineFingerprint(Maps.newHashMap(nodes), digest.clone());
+    }
+
+    /**
+     * @return the textual representation of this fingerprint: the digest on the first line, followed by one line per node (sorted by name)
+     * holding the node name and its last build id separated by a tab.
+     */
+    String serialize() {
+        final StringBuilder sb = new StringBuilder(getDigest());
+        for (Map.Entry<String, NodeState> entry : new TreeMap<String, NodeState>(nodes).entrySet()) {
+            sb.append('\n').append(entry.getKey()).append('\t').append(entry.getValue().buildId);
+        }
+        return sb.append('\n').toString();
+    }
+
+    /**
+     * @return the fingerprint represented by the specified text (as produced by {@link #serialize()}), or {@code null} if the text is blank,
+     * inconsistent, or was produced by a previous version of this plugin.
+     */
+    static PipelineFingerprint parse(String text) {
+        final String[] lines = StringUtils.split(StringUtils.defaultString(text), '\n');
+        if (lines.length == 0 || !lines[0].startsWith(FORMAT_VERSION + ":")) {
+            return null;
+        }
+        final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        for (int i = 1; i < lines.length; i++) {
+            final int separator = lines[i].indexOf('\t');
+            if (separator > 0) {
+                fingerprint.update(lines[i].substring(0, separator), lines[i].substring(separator + 1));
+            }
+        }
+        // The digest is recomputed from the node table, so a table that does not match the recorded digest is rejected.
+        return fingerprint.getDigest().equals(lines[0].trim()) ? fingerprint : null;
+    }
+
+    private void xor(byte[] hash) {
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            digest[i] ^= hash[i];
+        }
+    }
+
+    private static final class NodeState {
+
+        private final String buildId;
+        private final byte[] hash;
+
+        public NodeState(String nodeName, String buildId) {
+            this.buildId = buildId;
+            this.hash = DigestUtils.sha(nodeName + '(' + buildId + ')');
+        }
+
+    }
+
+}
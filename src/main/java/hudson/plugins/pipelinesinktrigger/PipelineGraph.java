@@ -0,0 +1,279 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Function;
+
+/**
+ * Immutable directed graph whose nodes are identified by dense integer ids (in order of discovery, the root having id {@code 0}), and whose
+ * adjacency is stored in compressed sparse row (CSR) arrays for both the outgoing and the incoming edges.
+ *
+ * <p>The traversals ({@link #getDepthFirstOrder()}, {@link #analyze()}, and {@link #getAncestors(int[])}) only allocate primitive arrays,
+ * so their cost does not depend on the allocation of per-edge objects.</p>
+ *
+ * @param <T> the type of the nodes.
+ */
+final class PipelineGraph<T> {
+
+    private final Object[] nodes;
+    private final Map<T, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    /**
+     * @param edges the edges of the graph, as consecutive (source id, target id) pairs.
+     * @param edgeCount the number of edges (i.e. half the number of meaningful elements of the {@code edges} array).
+     */
+    PipelineGraph(List<T> nodes, Map<T, Integer> ids, int[] edges, int edgeCount) {
+        this.nodes = nodes.toArray();
+        this.ids = ids;
+        this.outOffsets = new int[this.nodes.length + 1];
+        this.outTargets = new int[edgeCount];
+        this.inOffsets = new int[this.nodes.length + 1];
+        this.inSources = new int[edgeCount];
+        // Counting sort of the edges by source (respectively target) id.
+        for (int i = 0; i < edgeCount; i++) {
+            outOffsets[edges[2 * i] + 1]++;
+            inOffsets[edges[2 * i + 1] + 1]++;
+        }
+        for (int i = 0; i < this.nodes.length; i++) {
+            outOffsets[i + 1] += outOffsets[i];
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        final int[] outPositions = outOffsets.clone();
+        final int[] inPositions = inOffsets.clone();
+        for (int i = 0; i < edgeCount; i++) {
+            final int source = edges[2 * i];
+            final int target = edges[2 * i + 1];
+            outTargets[outPositions[source]++] = target;
+            inSources[inPositions[target]++] = source;
+        }
+    }
+
+    int getNodeCount() {
+        return nodes.length;
+    }
+
+    int getEdgeCount() {
+        return outTargets.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    T getNode(int id) {
+        return (T) nodes[id];
+    }
+
+    /**
+     * @return the id of the specified node, or {@code -1} if the node is not part of the graph.
+     */
+    int getId(T node) {
+        final Integer id = ids.get(node);
+        return id == null ? -1 : id.intValue();
+    }
+
+    int getOutDegree(int id) {
+        return outOffsets[id + 1] - outOffsets[id];
+    }
+
+    /**
+     * @return the id of the {@code k}-th successor of the specified node.
+     */
+    int getSuccessor(int id, int k) {
+        return outTargets[outOffsets[id] + k];
+    }
+
+    boolean containsEdge(int source, int target) {
+        for (int i = outOffsets[source]; i < outOffsets[source + 1]; i++) {
+            if (outTargets[i] == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders the graph as an adjacency list, with one line per node (in depth-first order) listing its successors. Only meant for
+     * diagnostics, so it is computed on demand rather than while constructing the graph.
+     */
+    String toAdjacencyListing(Function<? super T, String> namer) {
+        final StringBuilder listing = new StringBuilder();
+        for (int id : getDepthFirstOrder()) {
+            listing.append(namer.apply(getNode(id))).append(": {");
+            for (int k = 0; k < getOutDegree(id); k++) {
+                if (k > 0) {
+                    listing.append(", ");
+                }
+                listing.append(namer.apply(getNode(getSuccessor(id, k))));
+            }
+            listing.append(String.format("}%n"));
+        }
+        return listing.toString();
+    }
+
+    /**
+     * @return the ids of the nodes reachable from the root (i.e. all the nodes), in depth-first (pre-)order.
+     */
+    int[] getDepthFirstOrder() {
+        final int[] order = new int[nodes.length];
+        if (nodes.length == 0) {
+            return order;
+        }
+        final boolean[] visited = new boolean[nodes.length];
+        final int[] stack = new int[outTargets.length + 1];
+        int top = 0;
+        int count = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final int id = stack[--top];
+            if (visited[id]) {
+                continue;
+            }
+            visited[id] = true;
+            order[count++] = id;
+            // Push the successors in reverse order, so that they are visited in their natural order.
+            for (int i = outOffsets[id + 1] - 1; i >= outOffsets[id]; i--) {
+                if (!visited[outTargets[i]]) {
+                    stack[top++] = outTargets[i];
+                }
+            }
+        }
+        return count == order.length ? order : Arrays.copyOf(order, count);
+    }
+
+    /**
+     * Computes, in a single depth-first traversal (Tarjan's strongly connected components algorithm, in linear time), a topological order of
+     * the nodes along with the cycles of the graph.
+     */
+    Analysis analyze() {
+        final int n = nodes.length;
+        final int[] index = new int[n];
+        Arrays.fill(index, -1);
+        final int[] lowLink = new int[n];
+        final boolean[] onStack = new boolean[n];
+        final int[] componentStack = new int[n];
+        final int[] callStack = new int[n];
+        final int[] edgePositions = new int[n];
+        final int[] order = new int[n];
+        final List<int[]> cycles = new ArrayList<int[]>();
+        int componentTop = 0;
+        int nextIndex = 0;
+        // The strongly connected components are completed in reverse topological order, so the order array is filled from its end.
+        int orderHead = n;
+        for (int start = 0; start < n; start++) {
+            if (index[start] >= 0) {
+                continue;
+            }
+            int callTop = 0;
+            index[start] = lowLink[start] = nextIndex++;
+            componentStack[componentTop++] = start;
+            onStack[start] = true;
+            callStack[callTop] = start;
+            edgePositions[callTop++] = outOffsets[start];
+            while (callTop > 0) {
+                final int id = callStack[callTop - 1];
+                if (edgePositions[callTop - 1] < outOffsets[id + 1]) {
+                    final int target = outTargets[edgePositions[callTop - 1]++];
+                    if (index[target] < 0) {
+                        index[target] = lowLink[target] = nextIndex++;
+                        componentStack[componentTop++] = target;
+                        onStack[target] = true;
+                        callStack[callTop] = target;
+                        edgePositions[callTop++] = outOffsets[target];
+                    }
+                    else if (onStack[target]) {
+                        lowLink[id] = Math.min(lowLink[id], index[target]);
+                    }
+                    continue;
+                }
+                callTop--;
+                if (callTop > 0) {
+                    final int parent = callStack[callTop - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[id]);
+                }
+                if (lowLink[id] == index[id]) {
+                    // The node is the root of a strongly connected component, made of the nodes above it on the component stack.
+                    final int componentEnd = componentTop;
+                    int member;
+                    do {
+                        member = componentStack[--componentTop];
+                        onStack[member] = false;
+                        order[--orderHead] = member;
+                    } while (member != id);
+                    if (componentEnd - componentTop > 1 || containsEdge(id, id)) {
+                        final int[] cycle = Arrays.copyOfRange(componentStack, componentTop, componentEnd);
+                        Arrays.sort(cycle);
+                        cycles.add(cycle);
+                    }
+                }
+            }
+        }
+        return new Analysis(order, cycles);
+    }
+
+    /**
+     * @return the ids of the specified nodes along with the ids of all the nodes they are reachable from (reverse reachability).
+     */
+    BitSet getAncestors(int[] seeds) {
+        final BitSet ancestors = new BitSet(nodes.length);
+        final int[] stack = new int[nodes.length];
+        int top = 0;
+        for (int seed : seeds) {
+            if (!ancestors.get(seed)) {
+                ancestors.set(seed);
+                stack[top++] = seed;
+            }
+        }
+        while (top > 0) {
+            final int id = stack[--top];
+            for (int i = inOffsets[id]; i < inOffsets[id + 1]; i++) {
+                if (!ancestors.get(inSources[i])) {
+                    ancestors.set(inSources[i]);
+                    stack[top++] = inSources[i];
+                }
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * The outcome of {@link PipelineGraph#analyze()}.
+     */
+    static final class Analysis {
+
+        private final int[] topologicalOrder;
+        private final List<int[]> cycles;
+
+        private Analysis(int[] topologicalOrder, List<int[]> cycles) {
+            this.topologicalOrder = topologicalOrder;
+            this.cycles = Collections.unmodifiableList(cycles);
+        }
+
+        /**
+         * @return the ids of all the nodes, every node being ordered after its predecessors, unless they are part of the same cycle.
+         */
+        int[] getTopologicalOrder() {
+            return topologicalOrder;
+        }
+
+        /**
+         * @return the cycles of the graph (i.e. the strongly connected components made of more than one node, and the nodes having a self
+         * loop), each one as the ids of its nodes in ascending order.
+         */
+        List<int[]> getCycles() {
+            return cycles;
+        }
+
+        boolean hasCycles() {
+            return !cycles.isEmpty();
+        }
+
+    }
+
+}
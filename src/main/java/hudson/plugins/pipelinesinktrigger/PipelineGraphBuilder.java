@@ -0,0 +1,78 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Constructs the build pipeline graph rooted at a given node by walking the downstream relationships exposed by a {@link ProjectGraphSource}.
+ *
+ * <p>Each node is expanded (i.e. its downstream nodes are queried) exactly once, regardless of the number of paths leading to it, so the cost
+ * of the construction is linear in the number of vertices plus edges (as opposed to exponential for fan-out/fan-in "diamond" shaped pipelines).</p>
+ *
+ * <p>A builder instance is meant to construct a single graph.</p>
+ *
+ * @param <T> the type of the nodes.
+ */
+final class PipelineGraphBuilder<T> {
+
+    private final ProjectGraphSource<T> source;
+
+    PipelineGraphBuilder(ProjectGraphSource<T> source) {
+        this.source = source;
+    }
+
+    PipelineGraph<T> build(T root) {
+        final List<T> nodes = new ArrayList<T>();
+        final Map<T, Integer> ids = new HashMap<T, Integer>();
+        int[] edges = new int[16];
+        int edgeCount = 0;
+        // Id of the last node that recorded an edge to a given node (used for discarding duplicate downstream relationships).
+        int[] lastSources = new int[16];
+
+        final Deque<Integer> stack = new ArrayDeque<Integer>();
+        nodes.add(root);
+        ids.put(root, 0);
+        lastSources[0] = -1;
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The construction of the build pipeline graph has been cancelled.");
+            }
+            final int id = stack.pop();
+            final T node = nodes.get(id);
+            final List<? extends T> children = source.getDownstream(node);
+            for (T child : children) {
+                // Only push the child the first time it is discovered (a node that already has an id has either been expanded, or is
+                // pending expansion), but always record the edge.
+                Integer childId = ids.get(child);
+                if (childId == null) {
+                    childId = nodes.size();
+                    nodes.add(child);
+                    ids.put(child, childId);
+                    if (childId >= lastSources.length) {
+                        lastSources = Arrays.copyOf(lastSources, 2 * lastSources.length);
+                    }
+                    lastSources[childId] = -1;
+                    stack.push(childId);
+                }
+                if (lastSources[childId] != id) {
+                    lastSources[childId] = id;
+                    if (2 * edgeCount + 2 > edges.length) {
+                        edges = Arrays.copyOf(edges, 2 * edges.length);
+                    }
+                    edges[2 * edgeCount] = id;
+                    edges[2 * edgeCount + 1] = childId;
+                    edgeCount++;
+                }
+            }
+        }
+        return new PipelineGraph<T>(nodes, ids, edges, edgeCount);
+    }
+
+}
@@ -0,0 +1,255 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+import hudson.model.DependencyGraph;
+import hudson.model.Hudson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Process-wide cache of the build pipeline graphs (and the outcome of their cycle detection), shared across all the
+ * {@link BuildGraphPipelineSinkTrigger} instances, and keyed by the root project name and the exclusions (project names and patterns).
+ *
+ * <p>A cached graph is stamped with the Hudson {@link DependencyGraph} it was constructed from (a new instance is created whenever a project
+ * configuration changes), and with the version of the cache which is bumped by {@link #invalidate()} when jobs are created, renamed, or
+ * deleted. Since enabling/disabling a project does not rebuild the dependency graph, the enabled state of the projects that were examined
+ * during the construction is verified as well before a cached graph is reused. The upstream relationships of the sink projects (used for
+ * restricting the evaluation to the projects feeding a given sink) are derived from the same dependency graph, so they are cached along.</p>
+ *
+ * <p>All the cached graphs are discarded as soon as a new dependency graph is seen, so the graphs of the roots and exclusions that are no
+ * longer used by any trigger (e.g. after a trigger configuration change, which also rebuilds the dependency graph) do not accumulate.</p>
+ *
+ * <p>A graph is analysed once, when it is constructed (see {@link PipelineGraph#analyze()}): its projects are cached in topological order
+ * (so the evaluation reaches the upstream projects before the downstream ones), along with the projects making up each of its cycles.</p>
+ */
+final class PipelineGraphCache {
+
+    private static final Map<Key, CachedGraph> CACHE = new ConcurrentHashMap<Key, CachedGraph>();
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    /**
+     * The dependency graph the cached graphs were constructed from.
+     */
+    private static final AtomicReference<DependencyGraph> DEPENDENCY_GRAPH = new AtomicReference<DependencyGraph>();
+
+    private static final Function<AbstractProject<?,?>, String> PROJECT_NAME = new Function<AbstractProject<?,?>, String>() {
+        public String apply(AbstractProject<?,?> project) {
+            return project.getName();
+        }
+    };
+
+    private PipelineGraphCache() {
+    }
+
+    /**
+     * @return the (possibly cached) build pipeline graph rooted at the specified project.
+     */
+    static CachedGraph get(AbstractProject<?,?> root, ExclusionMatcher exclusions) {
+        final Key key = new Key(root.getName(), exclusions);
+        final DependencyGraph dependencyGraph = Hudson.getInstance().getDependencyGraph();
+        final DependencyGraph cachedDependencyGraph = DEPENDENCY_GRAPH.get();
+        if (cachedDependencyGraph != dependencyGraph && DEPENDENCY_GRAPH.compareAndSet(cachedDependencyGraph, dependencyGraph)) {
+            CACHE.clear();
+        }
+        final long version = VERSION.get();
+        CachedGraph cachedGraph = CACHE.get(key);
+        if (cachedGraph == null || !cachedGraph.isValid(root, dependencyGraph, version)) {
+            cachedGraph = construct(root, exclusions, dependencyGraph, version);
+            if (DEPENDENCY_GRAPH.get() == dependencyGraph) {
+                CACHE.put(key, cachedGraph);
+            }
+        }
+        return cachedGraph;
+    }
+
+    /**
+     * Discards all the cached graphs.
+     */
+    static void invalidate() {
+        VERSION.incrementAndGet();
+        CACHE.clear();
+    }
+
+    private static CachedGraph construct(AbstractProject<?,?> root, ExclusionMatcher exclusions, DependencyGraph dependencyGraph, long version) {
+        final HudsonProjectGraphSource source = new HudsonProjectGraphSource(exclusions);
+        final PipelineGraphBuilder<AbstractProject<?,?>> builder = new PipelineGraphBuilder<AbstractProject<?,?>>(source);
+        final PipelineGraph<AbstractProject<?,?>> graph = builder.build(root);
+        return new CachedGraph(root, graph, graph.analyze(), source.getDisabledProjects(), dependencyGraph, version);
+    }
+
+    /**
+     * An immutable build pipeline graph, along with the outcome of its analysis.
+     */
+    static final class CachedGraph {
+
+        private final AbstractProject<?,?> root;
+        private final PipelineGraph<AbstractProject<?,?>> graph;
+        private final List<List<String>> cycles;
+        private final Set<String> projectNames;
+        private final List<AbstractProject<?,?>> projects;
+        private final ConcurrentMap<AbstractProject<?,?>, List<AbstractProject<?,?>>> sinkSlices =
+                new ConcurrentHashMap<AbstractProject<?,?>, List<AbstractProject<?,?>>>();
+        private final List<AbstractProject<?,?>> disabledProjects;
+        private final DependencyGraph dependencyGraph;
+        private final long version;
+
+        private CachedGraph(AbstractProject<?,?> root, PipelineGraph<AbstractProject<?,?>> graph, PipelineGraph.Analysis analysis,
+                List<AbstractProject<?,?>> disabledProjects, DependencyGraph dependencyGraph, long version) {
+            this.root = root;
+            this.graph = graph;
+            final List<List<String>> cycleNames = new ArrayList<List<String>>(analysis.getCycles().size());
+            for (int[] cycle : analysis.getCycles()) {
+                final List<String> memberNames = new ArrayList<String>(cycle.length);
+                for (int id : cycle) {
+                    memberNames.add(graph.getNode(id).getName());
+                }
+                cycleNames.add(ImmutableList.copyOf(memberNames));
+            }
+            this.cycles = ImmutableList.copyOf(cycleNames);
+            final Set<String> names = new HashSet<String>();
+            final List<AbstractProject<?,?>> projectsInTopologicalOrder = new ArrayList<AbstractProject<?,?>>(graph.getNodeCount());
+            for (int id : analysis.getTopologicalOrder()) {
+                names.add(graph.getNode(id).getName());
+                projectsInTopologicalOrder.add(graph.getNode(id));
+            }
+            this.projectNames = ImmutableSet.copyOf(names);
+            this.projects = ImmutableList.copyOf(projectsInTopologicalOrder);
+            this.disabledProjects = ImmutableList.copyOf(disabledProjects);
+            this.dependencyGraph = dependencyGraph;
+            this.version = version;
+        }
+
+        PipelineGraph<AbstractProject<?,?>> getGraph() {
+            return graph;
+        }
+
+        boolean hasCycles() {
+            return !cycles.isEmpty();
+        }
+
+        /**
+         * @return the names of the projects making up each cycle of the graph.
+         */
+        List<List<String>> getCycles() {
+            return cycles;
+        }
+
+        /**
+         * @return the adjacency list of the graph (rendered on demand, since it is only needed for diagnostics).
+         */
+        String getAdjacencyListing() {
+            return graph.toAdjacencyListing(PROJECT_NAME);
+        }
+
+        Set<String> getProjectNames() {
+            return projectNames;
+        }
+
+        /**
+         * @return the projects of the graph, in topological order (the projects of a cycle being adjacent).
+         */
+        List<AbstractProject<?,?>> getProjects() {
+            return projects;
+        }
+
+        /**
+         * @return the projects of the graph that lie on a path from the root to the specified sink (i.e. the upstream projects of the sink
+         * within the graph, and their ancestors), in topological order. The list is empty if the sink has no upstream project
+         * within the graph.
+         */
+        @SuppressWarnings("rawtypes")
+        List<AbstractProject<?,?>> getProjectsFeeding(AbstractProject<?,?> sink) {
+            List<AbstractProject<?,?>> slice = sinkSlices.get(sink);
+            if (slice == null) {
+                // Reverse reachability from the upstream projects of the sink (the forward reachability from the root being the graph itself).
+                final List<AbstractProject> upstreamProjects = sink.getUpstreamProjects();
+                final int[] seeds = new int[upstreamProjects.size()];
+                int seedCount = 0;
+                for (AbstractProject<?,?> upstream : upstreamProjects) {
+                    final int id = graph.getId(upstream);
+                    if (id >= 0 && upstream != sink) {
+                        seeds[seedCount++] = id;
+                    }
+                }
+                final BitSet ancestors = graph.getAncestors(Arrays.copyOf(seeds, seedCount));
+                final int sinkId = graph.getId(sink);
+                if (sinkId >= 0) {
+                    // The sink itself is left out (its own builds would otherwise be seen as upstream dependency build changes).
+                    ancestors.clear(sinkId);
+                }
+                final List<AbstractProject<?,?>> projectsFeedingSink = new ArrayList<AbstractProject<?,?>>();
+                for (AbstractProject<?,?> project : projects) {
+                    if (ancestors.get(graph.getId(project))) {
+                        projectsFeedingSink.add(project);
+                    }
+                }
+                slice = ImmutableList.copyOf(projectsFeedingSink);
+                sinkSlices.put(sink, slice);
+            }
+            return slice;
+        }
+
+        private boolean isValid(AbstractProject<?,?> currentRoot, DependencyGraph currentDependencyGraph, long currentVersion) {
+            if (root != currentRoot || dependencyGraph != currentDependencyGraph || version != currentVersion) {
+                return false;
+            }
+            for (AbstractProject<?,?> project : projects) {
+                if (project != root && project.isDisabled()) {
+                    return false;
+                }
+            }
+            for (AbstractProject<?,?> project : disabledProjects) {
+                if (!project.isDisabled()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final String rootProjectName;
+        private final ExclusionMatcher exclusions;
+
+        public Key(String rootProjectName, ExclusionMatcher exclusions) {
+            this.rootProjectName = rootProjectName;
+            this.exclusions = exclusions;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return rootProjectName.equals(other.rootProjectName) && exclusions.equals(other.exclusions);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * rootProjectName.hashCode() + exclusions.hashCode();
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Job {@link Action} contributed by a {@link BuildGraphPipelineSinkTrigger}, listing its recent decisions (see {@link DecisionLog}), and
+ * exposing them along with its {@link TriggerMetrics} through the remote API (e.g.
+ * <code>/job/MyProduct-Trigger-Observer/pipeline-sink-trigger/api/json?depth=2</code>). The snapshot of the most recent evaluation of each
+ * root/sink pair is served separately (see {@link PipelineStatus}), supporting conditional requests.
+ */
+@ExportedBean
+public final class PipelineSinkTriggerAction implements Action {
+
+    private final BuildGraphPipelineSinkTrigger trigger;
+
+    PipelineSinkTriggerAction(BuildGraphPipelineSinkTrigger trigger) {
+        this.trigger = trigger;
+    }
+
+    public String getIconFileName() {
+        return "clipboard.gif";
+    }
+
+    public String getDisplayName() {
+        return Messages.PipelineSinkTriggerAction_DisplayName();
+    }
+
+    public String getUrlName() {
+        return "pipeline-sink-trigger";
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public AbstractProject<?,?> getProject() {
+        return trigger.getJob();
+    }
+
+    @Exported
+    public String getRootProjectName() {
+        return trigger.getRootProjectName();
+    }
+
+    @Exported
+    public String getSinkProjectName() {
+        return trigger.getSinkProjectName();
+    }
+
+    /**
+     * @return the root/sink pairs of the trigger (the main one first), in the form <code>root -&gt; sink</code>.
+     */
+    @Exported
+    public List<String> getPipelines() {
+        final List<String> definitions = new ArrayList<String>();
+        for (SinkPipeline pipeline : trigger.getPipelines()) {
+            definitions.add(SinkPipeline.format(Collections.singletonList(pipeline)));
+        }
+        return definitions;
+    }
+
+    @Exported(inline = true)
+    public TriggerMetrics getMetrics() {
+        return trigger.getMetrics();
+    }
+
+    /**
+     * @return the status of the root/sink pairs of the trigger (bound to <code>status/</code>, so not part of the remote API of this action).
+     */
+    public PipelineStatus getStatus() {
+        return new PipelineStatus(trigger.getPipelines());
+    }
+
+    /**
+     * @return the recent decisions of the trigger, the most recent one first.
+     */
+    @Exported
+    public List<DecisionLog.Entry> getDecisions() {
+        return trigger.getDecisionLog().getEntries();
+    }
+
+}
@@ -0,0 +1,275 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.jvnet.localizer.Localizable;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Immutable snapshot of the most recent evaluation of a root/sink pair of a {@link BuildGraphPipelineSinkTrigger}: its outcome, whether the
+ * build pipeline graph was found inactive, stable, and stale, the nodes of the graph, the nodes blocking the build of the sink, the current
+ * fingerprint, and the time the sink was last triggered.
+ *
+ * <p>Served (as JSON or XML) by the {@link PipelineStatus} of the {@link PipelineSinkTriggerAction} of the job, so reading the status of a
+ * trigger never evaluates its build pipeline graph. The names of the nodes and the message are only rendered when someone actually reads
+ * them.</p>
+ */
+@ExportedBean
+public final class PipelineSnapshot {
+
+    enum BlockingReason {
+        /** The node is running, or scheduled in the build queue. */
+        ACTIVE,
+        /** The last build of the node was not successful. */
+        NON_SUCCESSFUL,
+        /** The node is part of a cycle of the build pipeline graph. */
+        CYCLE
+    }
+
+    private final String rootProjectName;
+    private final String sinkProjectName;
+    private final long timestamp;
+    private final TriggerMetrics.Outcome outcome;
+    private final Localizable message;
+    private final List<AbstractProject<?,?>> nodes;
+    private final List<BlockingNode> blockingNodes;
+    private final String fingerprint;
+    private final long lastTriggerTime;
+
+    private PipelineSnapshot(String rootProjectName, String sinkProjectName, long timestamp, TriggerMetrics.Outcome outcome,
+            Localizable message, List<AbstractProject<?,?>> nodes, List<BlockingNode> blockingNodes, String fingerprint, long lastTriggerTime) {
+        this.rootProjectName = rootProjectName;
+        this.sinkProjectName = sinkProjectName;
+        this.timestamp = timestamp;
+        this.outcome = outcome;
+        this.message = message;
+        this.nodes = nodes;
+        this.blockingNodes = blockingNodes;
+        this.fingerprint = fingerprint;
+        this.lastTriggerTime = lastTriggerTime;
+    }
+
+    /**
+     * @return the snapshot of a root/sink pair that has not been evaluated yet.
+     */
+    static PipelineSnapshot notEvaluated(SinkPipeline sinkPipeline) {
+        return new PipelineSnapshot(sinkPipeline.getRootProjectName(), sinkPipeline.getSinkProjectName(), 0L, null, null,
+                Collections.<AbstractProject<?,?>>emptyList(), Collections.<BlockingNode>emptyList(), null, sinkPipeline.getLastTriggerTime());
+    }
+
+    @Exported
+    public String getRootProjectName() {
+        return rootProjectName;
+    }
+
+    @Exported
+    public String getSinkProjectName() {
+        return sinkProjectName;
+    }
+
+    /**
+     * @return the time of the evaluation, or {@code null} if the pair has not been evaluated yet.
+     */
+    @Exported
+    public Date getTime() {
+        return outcome == null ? null : new Date(timestamp);
+    }
+
+    /**
+     * @return the outcome of the evaluation (see {@link TriggerMetrics.Outcome}), or {@code null} if the pair has not been evaluated yet.
+     */
+    @Exported
+    public String getOutcome() {
+        return outcome == null ? null : outcome.name();
+    }
+
+    @Exported
+    public String getMessage() {
+        return message == null ? "" : message.toString();
+    }
+
+    /**
+     * @return whether no node of the build pipeline graph was running or queued, or {@code null} if the activity of the graph was not
+     * evaluated (e.g. the evaluation was skipped).
+     */
+    @Exported
+    public Boolean getInactive() {
+        if (outcome == TriggerMetrics.Outcome.ACTIVE) {
+            return Boolean.FALSE;
+        }
+        return isScanned() ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @return whether the last build of every node was successful (or the non-successful builds are ignored), or {@code null} if unknown
+     * (e.g. the scan of the graph stopped at an active node).
+     */
+    @Exported
+    public Boolean getStable() {
+        if (outcome == TriggerMetrics.Outcome.UNSTABLE) {
+            return Boolean.FALSE;
+        }
+        return isScanned() && outcome != TriggerMetrics.Outcome.ACTIVE ? Boolean.TRUE : null;
+    }
+
+    /**
+     * @return whether upstream dependency build changes were detected since the last scheduled build of the sink (i.e. the sink is being
+     * triggered, or waits for the graph to settle), or {@code null} if unknown (e.g. the graph is active or unstable).
+     */
+    @Exported
+    public Boolean getStale() {
+        if (outcome == null) {
+            return null;
+        }
+        switch (outcome) {
+            case SETTLING:
+            case TRIGGERED:
+                return Boolean.TRUE;
+            case BASELINE:
+            case UNCHANGED:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private boolean isScanned() {
+        if (outcome == null) {
+            return false;
+        }
+        switch (outcome) {
+            case ACTIVE:
+            case UNSTABLE:
+            case BASELINE:
+            case UNCHANGED:
+            case SETTLING:
+            case TRIGGERED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the full names of the nodes of the build pipeline graph that were evaluated, in topological order.
+     */
+    @Exported
+    public List<String> getNodes() {
+        final List<String> names = new ArrayList<String>(nodes.size());
+        for (AbstractProject<?,?> node : nodes) {
+            names.add(node.getFullName());
+        }
+        return names;
+    }
+
+    @Exported(inline = true)
+    public List<BlockingNode> getBlockingNodes() {
+        return blockingNodes;
+    }
+
+    /**
+     * @return the digest of the current fingerprint of the build pipeline graph (as of the last evaluation that found the graph inactive), or
+     * {@code null} if the pair has not been evaluated yet.
+     */
+    @Exported
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the time a build of the sink was last scheduled by the trigger (since Hudson was started, or the job reconfigured), or
+     * {@code null} if none.
+     */
+    @Exported
+    public Date getLastTriggerTime() {
+        return lastTriggerTime == 0L ? null : new Date(lastTriggerTime);
+    }
+
+    /**
+     * @return the state of this snapshot the entity tag of the {@link PipelineStatus} is computed from: the fingerprint, along with the outcome,
+     * the message (its key and arguments), the blocking nodes, the nodes, and the last trigger time (but not the time of the evaluation, so
+     * consecutive evaluations of an unchanged graph share the same entity tag).
+     */
+    String getState() {
+        final StringBuilder sb = new StringBuilder(rootProjectName).append("->").append(sinkProjectName).append('|').append(fingerprint)
+                .append('|').append(outcome).append('|').append(lastTriggerTime);
+        if (message != null) {
+            sb.append('|').append(message.getKey());
+            for (Object arg : message.getArgs()) {
+                sb.append(':').append(arg);
+            }
+        }
+        for (BlockingNode blockingNode : blockingNodes) {
+            sb.append('|').append(blockingNode.name).append(':').append(blockingNode.reason);
+        }
+        sb.append('|');
+        for (AbstractProject<?,?> node : nodes) {
+            sb.append(node.getFullName()).append(',');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A node blocking the build of the sink, and why.
+     */
+    @ExportedBean
+    public static final class BlockingNode {
+
+        private final String name;
+        private final BlockingReason reason;
+
+        BlockingNode(String name, BlockingReason reason) {
+            this.name = name;
+            this.reason = reason;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        @Exported
+        public String getReason() {
+            return reason.name();
+        }
+
+    }
+
+    /**
+     * Collects the nodes and the blocking nodes of a root/sink pair as it gets evaluated.
+     */
+    static final class Builder {
+
+        private List<AbstractProject<?,?>> nodes = Collections.emptyList();
+        private List<BlockingNode> blockingNodes = Collections.emptyList();
+
+        /**
+         * @param nodes the (immutable) nodes of the build pipeline graph, in topological order.
+         */
+        Builder nodes(List<AbstractProject<?,?>> nodes) {
+            this.nodes = nodes;
+            return this;
+        }
+
+        Builder blocking(String nodeName, BlockingReason reason) {
+            if (blockingNodes.isEmpty()) {
+                blockingNodes = new ArrayList<BlockingNode>();
+            }
+            blockingNodes.add(new BlockingNode(nodeName, reason));
+            return this;
+        }
+
+        PipelineSnapshot build(SinkPipeline sinkPipeline, long timestamp, TriggerMetrics.Outcome outcome, Localizable message) {
+            return new PipelineSnapshot(sinkPipeline.getRootProjectName(), sinkPipeline.getSinkProjectName(), timestamp, outcome, message, nodes,
+                    Collections.unmodifiableList(blockingNodes), sinkPipeline.getFingerprint().getDigest(), sinkPipeline.getLastTriggerTime());
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.export.Flavor;
+
+/**
+ * Read-only status of the root/sink pairs of a {@link BuildGraphPipelineSinkTrigger}, i.e. the {@link PipelineSnapshot} of their most recent
+ * evaluation, served as JSON or XML (e.g. <code>/job/MyProduct-Trigger-Observer/pipeline-sink-trigger/status/api/json</code>).
+ *
+ * <p>The responses carry a weak entity tag computed from the fingerprints of the pairs (and from the outcome and blocking nodes of their
+ * evaluation), so clients polling the status with <code>If-None-Match</code> get a <code>304 Not Modified</code> response as long as nothing
+ * changed. Serving the status (or a <code>304</code>) never evaluates the build pipeline graphs.</p>
+ */
+@ExportedBean
+public final class PipelineStatus {
+
+    private final List<PipelineSnapshot> snapshots;
+
+    PipelineStatus(List<SinkPipeline> pipelines) {
+        this.snapshots = new ArrayList<PipelineSnapshot>(pipelines.size());
+        for (SinkPipeline pipeline : pipelines) {
+            snapshots.add(pipeline.getSnapshot());
+        }
+    }
+
+    /**
+     * @return the snapshots of the root/sink pairs of the trigger (the main one first).
+     */
+    @Exported(inline = true)
+    public List<PipelineSnapshot> getPipelines() {
+        return snapshots;
+    }
+
+    /**
+     * @return the (weak) entity tag of this status.
+     */
+    String getETag() {
+        final StringBuilder state = new StringBuilder();
+        for (PipelineSnapshot snapshot : snapshots) {
+            state.append(snapshot.getState()).append('\n');
+        }
+        return "W/\"" + DigestUtils.shaHex(state.toString()) + "\"";
+    }
+
+    /**
+     * @return {@code true} if the specified <code>If-None-Match</code> header (a comma-separated list of entity tags, or <code>*</code>)
+     * matches the specified entity tag, using the weak comparison.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || StringUtils.removeStart(candidate, "W/").equals(StringUtils.removeStart(eTag, "W/"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Api getApi() {
+        return new Api();
+    }
+
+    /**
+     * The remote API of the status, answering conditional requests.
+     */
+    public final class Api {
+
+        public void doJson(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+            serve(req, rsp, Flavor.JSON);
+        }
+
+        public void doXml(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+            serve(req, rsp, Flavor.XML);
+        }
+
+        private void serve(StaplerRequest req, StaplerResponse rsp, Flavor flavor) throws IOException, ServletException {
+            final String eTag = getETag();
+            rsp.setHeader("ETag", eTag);
+            // Let clients (and proxies) cache the status, as long as they revalidate it on every request.
+            rsp.setHeader("Cache-Control", "no-cache");
+            if (matches(req.getHeader("If-None-Match"), eTag)) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            rsp.serveExposedBean(req, PipelineStatus.this, flavor);
+        }
+
+    }
+
+}
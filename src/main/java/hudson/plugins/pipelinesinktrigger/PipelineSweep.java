@@ -0,0 +1,99 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.triggers.SafeTimerTask;
+import hudson.triggers.Trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Coordinates the evaluation of the {@link BuildGraphPipelineSinkTrigger} instances, so that the triggers requesting an evaluation at about
+ * the same time (e.g. on the same cron tick, or upon the completion of the same upstream build) are evaluated together, from a single
+ * {@link HudsonProjectStatusSource}: the build queue and the executors are scanned once for all of them. (The build pipeline graphs
+ * themselves are shared through the {@link PipelineGraphCache}, and the status of the last builds through the {@link LastBuildStatusCache}.)
+ *
+ * <p>The sweep itself (including the scan of the build queue and the executors) runs on the {@link PipelineEvaluationExecutor}, the Hudson
+ * cron thread only scheduling it.</p>
+ */
+final class PipelineSweep {
+
+    private static final Logger LOGGER = Logger.getLogger(PipelineSweep.class.getName());
+
+    /**
+     * Delay (in milliseconds) between the first evaluation request of a sweep and the sweep itself, giving the other triggers of the same cron
+     * tick time to join the sweep.
+     */
+    private static final long SWEEP_DELAY = Long.getLong(PipelineSweep.class.getName() + ".delay", 500L);
+
+    private static final Set<BuildGraphPipelineSinkTrigger> PENDING =
+            Sets.newSetFromMap(new ConcurrentHashMap<BuildGraphPipelineSinkTrigger, Boolean>());
+
+    private static final AtomicBoolean SWEEP_SCHEDULED = new AtomicBoolean();
+
+    private PipelineSweep() {
+    }
+
+    /**
+     * Adds the specified trigger to the next sweep, and schedules the sweep if need be.
+     */
+    static void request(BuildGraphPipelineSinkTrigger trigger) {
+        PENDING.add(trigger);
+        if (SWEEP_SCHEDULED.compareAndSet(false, true)) {
+            Trigger.timer.schedule(new SafeTimerTask() {
+                @Override
+                protected void doRun() throws Exception {
+                    SWEEP_SCHEDULED.set(false);
+                    try {
+                        PipelineEvaluationExecutor.execute(new Runnable() {
+                            public void run() {
+                                try {
+                                    sweep();
+                                }
+                                catch (RuntimeException e) {
+                                    LOGGER.log(Level.SEVERE, "Encountered an error during trigger execution.", e);
+                                }
+                            }
+                        });
+                    }
+                    catch (RejectedExecutionException e) {
+                        // The pending triggers join the next sweep.
+                        LOGGER.log(Level.WARNING, Messages.BuildGraphPipelineSinkTrigger_SweepPostponed());
+                    }
+                }
+            }, SWEEP_DELAY);
+        }
+    }
+
+    /**
+     * Removes the specified trigger from the next sweep (if it was part of it).
+     */
+    static void cancel(BuildGraphPipelineSinkTrigger trigger) {
+        PENDING.remove(trigger);
+    }
+
+    private static void sweep() {
+        final List<BuildGraphPipelineSinkTrigger> triggers = new ArrayList<BuildGraphPipelineSinkTrigger>(PENDING.size());
+        for (BuildGraphPipelineSinkTrigger trigger : PENDING) {
+            // Only remove the triggers actually part of this sweep (a trigger requesting an evaluation from now on joins the next sweep).
+            if (PENDING.remove(trigger)) {
+                triggers.add(trigger);
+            }
+        }
+        if (triggers.isEmpty()) {
+            return;
+        }
+        final HudsonProjectStatusSource statusSource = HudsonProjectStatusSource.capture();
+        for (BuildGraphPipelineSinkTrigger trigger : triggers) {
+            PipelineEvaluationExecutor.submit(trigger, statusSource);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Process-wide registry of the started {@link BuildGraphPipelineSinkTrigger} instances, along with:
+ * <ul>
+ *   <li>the names of the projects that made up their build pipeline graph during their last evaluation (used to determine which triggers are
+ *   affected by a build completion event);</li>
+ *   <li>a reverse index from the project names referenced by their configuration (i.e. the root, sink, and excluded project names) to the
+ *   triggers, so that renaming or deleting a job only touches the affected triggers.</li>
+ * </ul>
+ *
+ * <p>Triggers are registered when started (i.e. when the trigger job configuration is loaded or saved), and unregistered when stopped.</p>
+ */
+final class PipelineTriggerRegistry {
+
+    /**
+     * Marker for a trigger whose build pipeline graph has not been evaluated yet (i.e. any project may be part of its graph).
+     */
+    private static final Set<String> UNKNOWN_PIPELINE = Collections.emptySet();
+
+    private static final ConcurrentMap<BuildGraphPipelineSinkTrigger, Set<String>> TRIGGERS =
+            new ConcurrentHashMap<BuildGraphPipelineSinkTrigger, Set<String>>();
+
+    // Guarded by the class lock.
+    private static final Map<BuildGraphPipelineSinkTrigger, Set<String>> REFERENCED_NAMES = Maps.newHashMap();
+    private static final Map<String, Set<BuildGraphPipelineSinkTrigger>> TRIGGERS_BY_REFERENCED_NAME = Maps.newHashMap();
+
+    private PipelineTriggerRegistry() {
+    }
+
+    static synchronized void register(BuildGraphPipelineSinkTrigger trigger) {
+        TRIGGERS.put(trigger, UNKNOWN_PIPELINE);
+        reindex(trigger);
+    }
+
+    static synchronized void unregister(BuildGraphPipelineSinkTrigger trigger) {
+        TRIGGERS.remove(trigger);
+        removeReferences(trigger);
+    }
+
+    /**
+     * Updates the reverse index following a change of the project names referenced by the configuration of the specified trigger.
+     */
+    static synchronized void reindex(BuildGraphPipelineSinkTrigger trigger) {
+        removeReferences(trigger);
+        if (TRIGGERS.containsKey(trigger)) {
+            final Set<String> names = trigger.getReferencedProjectNames();
+            REFERENCED_NAMES.put(trigger, names);
+            for (String name : names) {
+                Set<BuildGraphPipelineSinkTrigger> triggers = TRIGGERS_BY_REFERENCED_NAME.get(name);
+                if (triggers == null) {
+                    triggers = Sets.newHashSet();
+                    TRIGGERS_BY_REFERENCED_NAME.put(name, triggers);
+                }
+                triggers.add(trigger);
+            }
+        }
+    }
+
+    private static void removeReferences(BuildGraphPipelineSinkTrigger trigger) {
+        final Set<String> names = REFERENCED_NAMES.remove(trigger);
+        if (names != null) {
+            for (String name : names) {
+                final Set<BuildGraphPipelineSinkTrigger> triggers = TRIGGERS_BY_REFERENCED_NAME.get(name);
+                if (triggers != null && triggers.remove(trigger) && triggers.isEmpty()) {
+                    TRIGGERS_BY_REFERENCED_NAME.remove(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the registered triggers whose configuration refers to the specified project name (as the root, sink, or an excluded project).
+     */
+    static synchronized List<BuildGraphPipelineSinkTrigger> getTriggersReferencing(String projectName) {
+        final Set<BuildGraphPipelineSinkTrigger> triggers = TRIGGERS_BY_REFERENCED_NAME.get(projectName);
+        return triggers == null ? Collections.<BuildGraphPipelineSinkTrigger>emptyList() : ImmutableList.copyOf(triggers);
+    }
+
+    /**
+     * Records the names of the projects that make up the build pipeline graph of the specified (registered) trigger.
+     */
+    static void updatePipelineNodes(BuildGraphPipelineSinkTrigger trigger, Set<String> projectNames) {
+        TRIGGERS.replace(trigger, ImmutableSet.copyOf(projectNames));
+    }
+
+    /**
+     * @return the registered triggers whose build pipeline graph contains the specified project (or has not been evaluated yet).
+     */
+    static List<BuildGraphPipelineSinkTrigger> getTriggersAffectedBy(String projectName) {
+        final List<BuildGraphPipelineSinkTrigger> affected = Lists.newArrayList();
+        for (Map.Entry<BuildGraphPipelineSinkTrigger, Set<String>> entry : TRIGGERS.entrySet()) {
+            if (entry.getValue() == UNKNOWN_PIPELINE || entry.getValue().contains(projectName)) {
+                affected.add(entry.getKey());
+            }
+        }
+        return affected;
+    }
+
+}
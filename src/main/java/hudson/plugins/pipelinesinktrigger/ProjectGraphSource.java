@@ -0,0 +1,24 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.List;
+
+/**
+ * Source of the nodes (and their downstream relationships) that make up a build pipeline graph. Decouples the graph construction from
+ * the live Hudson model so that the traversal can be exercised against synthetic topologies.
+ *
+ * @param <T> the type of the nodes.
+ */
+interface ProjectGraphSource<T> {
+
+    /**
+     * @return the name of the specified node (used for diagnostics, and for labeling the edges of the graph).
+     */
+    String getName(T node);
+
+    /**
+     * @return the downstream nodes of the specified node that should be part of the build pipeline graph (i.e. disabled or excluded
+     * nodes must already be filtered out).
+     */
+    List<? extends T> getDownstream(T node);
+
+}
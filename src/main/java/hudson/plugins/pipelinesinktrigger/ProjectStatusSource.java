@@ -0,0 +1,26 @@
+package hudson.plugins.pipelinesinktrigger;
+
+/**
+ * Source of the activity and last build status of the nodes of a build pipeline graph. Decouples the evaluation of the graph from the live
+ * Hudson model so that it can be exercised against synthetic statuses.
+ *
+ * @param <T> the type of the nodes.
+ */
+interface ProjectStatusSource<T> {
+
+    /**
+     * @return the full name of the specified node (used for the fingerprint of the graph, and for diagnostics).
+     */
+    String getFullName(T node);
+
+    /**
+     * @return {@code true} if the specified node is currently running, or scheduled in the build queue.
+     */
+    boolean isActive(T node);
+
+    /**
+     * @return the status of the last build of the specified node (never {@code null}).
+     */
+    BuildStatus getLastBuildStatus(T node);
+
+}
@@ -0,0 +1,50 @@
+package hudson.plugins.pipelinesinktrigger;
+
+/**
+ * Tracks how long a changed build pipeline graph has stayed inactive with the same fingerprint, so that a build of the sink project is only
+ * scheduled once the graph has settled (i.e. the brief idle gaps between the upstream builds of a commit burst are ridden out).
+ */
+final class SettleWindow {
+
+    private final long periodMillis;
+
+    // Guarded by this.
+    private String candidateDigest;
+    private long candidateSince;
+
+    /**
+     * @param periodMillis how long (in milliseconds) a fingerprint must remain unchanged before it is considered settled.
+     */
+    SettleWindow(long periodMillis) {
+        this.periodMillis = periodMillis;
+    }
+
+    /**
+     * Offers the digest of the fingerprint of an inactive, stable, and changed build pipeline graph. A digest that differs from the current
+     * candidate restarts the window.
+     *
+     * @return the time (in milliseconds) left before the offered digest has settled, or {@code 0} if it has settled.
+     */
+    synchronized long offer(String digest, long now) {
+        if (!digest.equals(candidateDigest)) {
+            candidateDigest = digest;
+            candidateSince = now;
+        }
+        return Math.max(0L, candidateSince + periodMillis - now);
+    }
+
+    /**
+     * @return the time (in milliseconds) left before the current candidate has settled, or {@code 0} if there is none, or it has settled.
+     */
+    synchronized long getRemaining(long now) {
+        return candidateDigest == null ? 0L : Math.max(0L, candidateSince + periodMillis - now);
+    }
+
+    /**
+     * Discards the current candidate (e.g. because the build pipeline graph became active again, or a build of the sink has been scheduled).
+     */
+    synchronized void reset() {
+        candidateDigest = null;
+    }
+
+}
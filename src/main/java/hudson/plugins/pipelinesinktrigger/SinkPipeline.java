@@ -0,0 +1,183 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.AbstractProject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.google.common.collect.Lists;
+
+/**
+ * A root/sink pair of projects evaluated by a {@link BuildGraphPipelineSinkTrigger}, along with its evaluation state (the current fingerprint
+ * of its build pipeline graph, the fingerprint as of the last scheduled build of its sink, and its settle window).
+ *
+ * <p>Besides its main root/sink pair, a trigger may declare additional pairs, one per line, in the form <code>root -&gt; sink</code>. The pairs
+ * sharing a root share the same build pipeline graph (see {@link PipelineGraphCache}).</p>
+ */
+final class SinkPipeline {
+
+    static final String SEPARATOR = "->";
+
+    private volatile String rootProjectName;
+    private volatile String sinkProjectName;
+    private volatile String fingerprintFileName;
+    private final boolean fingerprintFileNamedAfterPair;
+    private final PipelineFingerprint fingerprint = new PipelineFingerprint();
+    private final SettleWindow settleWindow;
+
+    private volatile FingerprintStore fingerprintStore;
+    private volatile PipelineSnapshot snapshot;
+    private volatile long lastTriggerTime;
+
+    SinkPipeline(String rootProjectName, String sinkProjectName, String fingerprintFileName, long settlePeriodMillis) {
+        this(rootProjectName, sinkProjectName, fingerprintFileName, false, settlePeriodMillis);
+    }
+
+    private SinkPipeline(String rootProjectName, String sinkProjectName, String fingerprintFileName, boolean fingerprintFileNamedAfterPair,
+            long settlePeriodMillis) {
+        this.rootProjectName = rootProjectName;
+        this.sinkProjectName = sinkProjectName;
+        this.fingerprintFileName = fingerprintFileName;
+        this.fingerprintFileNamedAfterPair = fingerprintFileNamedAfterPair;
+        this.settleWindow = new SettleWindow(settlePeriodMillis);
+    }
+
+    /**
+     * Parses the additional root/sink pairs of a trigger (blank and malformed lines are ignored), each pair recording its fingerprint in a file
+     * named after the pair (and moved when one of its projects is renamed).
+     */
+    static List<SinkPipeline> parse(String definitions, long settlePeriodMillis) {
+        final List<SinkPipeline> pipelines = Lists.newArrayList();
+        for (String definition : StringUtils.split(StringUtils.defaultString(definitions), "\r\n")) {
+            final String[] names = parseDefinition(definition);
+            if (names != null) {
+                pipelines.add(new SinkPipeline(names[0], names[1], getFingerprintFileName(names[0], names[1]), true, settlePeriodMillis));
+            }
+        }
+        return pipelines;
+    }
+
+    /**
+     * @return the root and sink project names of the specified <code>root -&gt; sink</code> definition, or {@code null} if it is blank or
+     * malformed.
+     */
+    static String[] parseDefinition(String definition) {
+        final int separator = definition.indexOf(SEPARATOR);
+        if (separator < 0) {
+            return null;
+        }
+        final String root = definition.substring(0, separator).trim();
+        final String sink = definition.substring(separator + SEPARATOR.length()).trim();
+        if (root.length() == 0 || sink.length() == 0) {
+            return null;
+        }
+        return new String[] { root, sink };
+    }
+
+    /**
+     * @return the specified root/sink pairs, one <code>root -&gt; sink</code> definition per line.
+     */
+    static String format(List<SinkPipeline> pipelines) {
+        final List<String> definitions = Lists.newArrayListWithCapacity(pipelines.size());
+        for (SinkPipeline pipeline : pipelines) {
+            definitions.add(pipeline.getRootProjectName() + " " + SEPARATOR + " " + pipeline.getSinkProjectName());
+        }
+        return StringUtils.join(definitions, '\n');
+    }
+
+    private static String getFingerprintFileName(String rootProjectName, String sinkProjectName) {
+        try {
+            return "pipeline-context." + URLEncoder.encode(rootProjectName + SEPARATOR + sinkProjectName, "UTF-8") + ".fingerprint";
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e); // UTF-8 is always supported.
+        }
+    }
+
+    /**
+     * Attaches the fingerprint store of this pair to the job of its trigger.
+     */
+    void start(AbstractProject<?,?> job) {
+        fingerprintStore = new FingerprintStore(job, fingerprintFileName);
+    }
+
+    void stop() {
+        if (fingerprintStore != null) {
+            fingerprintStore.flush();
+        }
+    }
+
+    /**
+     * @return {@code true} if this pair refers to the renamed job (in which case it now refers to the new name, and its fingerprint file, if
+     * named after the pair, is moved accordingly), otherwise {@code false}.
+     */
+    boolean onJobRenamed(String oldName, String newName) {
+        boolean changed = false;
+        if (rootProjectName.equals(oldName)) {
+            rootProjectName = newName;
+            changed = true;
+        }
+        if (sinkProjectName.equals(oldName)) {
+            sinkProjectName = newName;
+            changed = true;
+        }
+        if (changed && fingerprintFileNamedAfterPair) {
+            fingerprintFileName = getFingerprintFileName(rootProjectName, sinkProjectName);
+            if (fingerprintStore != null) {
+                fingerprintStore.moveTo(fingerprintFileName);
+            }
+        }
+        return changed;
+    }
+
+    String getRootProjectName() {
+        return rootProjectName;
+    }
+
+    String getSinkProjectName() {
+        return sinkProjectName;
+    }
+
+    String getFingerprintFileName() {
+        return fingerprintFileName;
+    }
+
+    PipelineFingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    FingerprintStore getFingerprintStore() {
+        return fingerprintStore;
+    }
+
+    SettleWindow getSettleWindow() {
+        return settleWindow;
+    }
+
+    /**
+     * @return the snapshot of the most recent evaluation of this pair.
+     */
+    PipelineSnapshot getSnapshot() {
+        final PipelineSnapshot current = snapshot;
+        return current == null ? PipelineSnapshot.notEvaluated(this) : current;
+    }
+
+    void setSnapshot(PipelineSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return the time a build of the sink was last scheduled, or {@code 0} if none.
+     */
+    long getLastTriggerTime() {
+        return lastTriggerTime;
+    }
+
+    void setLastTriggerTime(long lastTriggerTime) {
+        this.lastTriggerTime = lastTriggerTime;
+    }
+
+}
@@ -0,0 +1,202 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * In-memory instrumentation of a {@link BuildGraphPipelineSinkTrigger}: the latency of its evaluations broken down by phase, the size of its
+ * build pipeline graph, the number of decisions taken by outcome, and the time elapsed between the completion of the last upstream dependency
+ * build and the scheduling of a build of the sink project.
+ *
+ * <p>Exposed (as JSON or XML) through the remote API of the {@link PipelineSinkTriggerAction} of the job.</p>
+ */
+@ExportedBean
+public final class TriggerMetrics {
+
+    enum Phase {
+        /** Retrieval (or construction) of the build pipeline graph. */
+        GRAPH_BUILD,
+        /** Detection of cycles in the build pipeline graph. */
+        CYCLE_CHECK,
+        /** Evaluation of the activity and of the last build of every node (the build queue and executors being scanned once per sweep). */
+        ACTIVITY_SCAN,
+        /** Retrieval and update of the persisted fingerprint. */
+        FINGERPRINT_IO,
+        /** The whole evaluation. */
+        TOTAL
+    }
+
+    enum Outcome {
+        /** The evaluation was skipped (e.g. missing or disabled root or sink project, building sink project, cycles). */
+        SKIPPED,
+        ACTIVE,
+        UNSTABLE,
+        /** No previous fingerprint to compare against, so the initial fingerprint was recorded. */
+        BASELINE,
+        UNCHANGED,
+        /** Changes were detected, but the build pipeline graph has not settled yet. */
+        SETTLING,
+        TRIGGERED,
+        CANCELLED,
+        ERROR
+    }
+
+    private final Map<Phase, Timing> phases = new EnumMap<Phase, Timing>(Phase.class);
+    private final Map<Outcome, AtomicLong> outcomes = new EnumMap<Outcome, AtomicLong>(Outcome.class);
+    private final Timing timeToTrigger = new Timing("timeToTrigger");
+    private final AtomicLong lastUpstreamCompletion = new AtomicLong();
+
+    private volatile int nodeCount;
+    private volatile int edgeCount;
+    private volatile int evaluatedNodeCount;
+
+    TriggerMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Timing(phase.name()));
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+    }
+
+    void recordPhase(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    void recordOutcome(Outcome outcome) {
+        outcomes.get(outcome).incrementAndGet();
+    }
+
+    void recordGraphSize(int nodeCount, int edgeCount, int evaluatedNodeCount) {
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.evaluatedNodeCount = evaluatedNodeCount;
+    }
+
+    void recordUpstreamCompletion(long timeMillis) {
+        lastUpstreamCompletion.set(timeMillis);
+    }
+
+    /**
+     * Records the scheduling of a build of the sink project, along with the time elapsed since the completion of the last upstream dependency
+     * build (if one has been observed since the previous build of the sink project was scheduled). The decision itself is counted, like any
+     * other, through {@link #recordOutcome(Outcome)}.
+     */
+    void recordTrigger(long timeMillis) {
+        final long upstreamCompletion = lastUpstreamCompletion.getAndSet(0L);
+        if (upstreamCompletion > 0L && timeMillis >= upstreamCompletion) {
+            timeToTrigger.record(TimeUnit.MILLISECONDS.toNanos(timeMillis - upstreamCompletion));
+        }
+    }
+
+    long getOutcomeCount(Outcome outcome) {
+        return outcomes.get(outcome).get();
+    }
+
+    @Exported
+    public List<Timing> getPhases() {
+        return new ArrayList<Timing>(phases.values());
+    }
+
+    @Exported
+    public Map<String, Long> getOutcomes() {
+        final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for (Map.Entry<Outcome, AtomicLong> entry : outcomes.entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    @Exported
+    public Timing getTimeToTrigger() {
+        return timeToTrigger;
+    }
+
+    @Exported
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Exported
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return the number of nodes actually evaluated (i.e. less than the node count if only the jobs the sink depends on are evaluated).
+     */
+    @Exported
+    public int getEvaluatedNodeCount() {
+        return evaluatedNodeCount;
+    }
+
+    /**
+     * Count, total, mean, maximum, and last value of a duration.
+     */
+    @ExportedBean
+    public static final class Timing {
+
+        private final String name;
+
+        // Guarded by this.
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long lastNanos;
+
+        Timing(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            lastNanos = nanos;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        @Exported
+        public synchronized long getCount() {
+            return count;
+        }
+
+        @Exported
+        public synchronized double getTotalMillis() {
+            return toMillis(totalNanos);
+        }
+
+        @Exported
+        public synchronized double getMeanMillis() {
+            return count == 0 ? 0.0 : toMillis(totalNanos) / count;
+        }
+
+        @Exported
+        public synchronized double getMaxMillis() {
+            return toMillis(maxNanos);
+        }
+
+        @Exported
+        public synchronized double getLastMillis() {
+            return toMillis(lastNanos);
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1000000.0;
+        }
+
+    }
+
+}
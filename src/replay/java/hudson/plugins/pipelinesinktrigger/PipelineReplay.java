@@ -0,0 +1,672 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.Result;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Headless replay of a recorded timeline of build events through the decision logic of a {@link BuildGraphPipelineSinkTrigger} (i.e. the
+ * {@link PipelineGraphBuilder}, {@link PipelineGraph#analyze()}, the {@link PipelineEvaluator}, the {@link PipelineFingerprint}, and the
+ * {@link SettleWindow}), against a simulated clock. Meant for tuning the configuration of a trigger (polling period, event-driven evaluation,
+ * settle period, exclusions, non-successful builds) offline, rather than at the cost of real builds of the sink projects.
+ *
+ * <p>The timeline is read as a stream (one line at a time). Its fields are separated by whitespace (so the project names must not contain any),
+ * blank lines and lines starting with <code>#</code> are ignored:</p>
+ * <pre>
+ * pipeline &lt;root&gt; &lt;sink&gt;                          (a root/sink pair of the trigger)
+ * edge &lt;upstream&gt; &lt;downstream&gt;                    (a downstream relationship between two projects)
+ * &lt;time&gt; queued &lt;project&gt;                         (a build of the project entered the build queue)
+ * &lt;time&gt; dequeued &lt;project&gt;                       (a build of the project left the build queue without starting)
+ * &lt;time&gt; started &lt;project&gt; &lt;build id&gt;              (a build of the project started, leaving the build queue)
+ * &lt;time&gt; completed &lt;project&gt; &lt;build id&gt; &lt;result&gt;   (a build of the project completed, e.g. with a SUCCESS or FAILURE result)
+ * </pre>
+ * <p>The times are in milliseconds, and the events are expected in chronological order (an earlier event is replayed at the current time). The
+ * <code>pipeline</code> and <code>edge</code> lines take effect at the time of the event preceding them. The
+ * builds of the sink projects scheduled by the replayed trigger are only accounted for: the builds of the sink projects are the ones recorded
+ * in the timeline.</p>
+ *
+ * <p>Run from the command line with {@link PipelineReplayCli}. Neither is part of the plugin: they are built (and tested) by the
+ * <code>replay</code> profile of the build.</p>
+ */
+final class PipelineReplay {
+
+    private static final long NONE = Long.MAX_VALUE;
+
+    /**
+     * The outcomes that an evaluation repeats when none of the projects of the pipeline changed since the previous one (the other outcomes
+     * either depend on the time, or change the state of the pipeline).
+     */
+    private static final Set<TriggerMetrics.Outcome> REPEATABLE_OUTCOMES = Collections.unmodifiableSet(EnumSet.of(TriggerMetrics.Outcome.SKIPPED,
+            TriggerMetrics.Outcome.ACTIVE, TriggerMetrics.Outcome.UNSTABLE, TriggerMetrics.Outcome.UNCHANGED));
+
+    /**
+     * When the evaluations of the trigger take place: periodically (i.e. as scheduled by the <code>spec</code> of the trigger), and/or after a
+     * delay following the completion of a build of a project of the pipeline (i.e. event-driven).
+     */
+    static final class Strategy {
+
+        private final long pollingPeriodMillis;
+        private final long eventDelayMillis;
+
+        Strategy(long pollingPeriodMillis, long eventDelayMillis) {
+            this.pollingPeriodMillis = pollingPeriodMillis;
+            this.eventDelayMillis = eventDelayMillis;
+        }
+
+        static Strategy polling(long periodMillis) {
+            return new Strategy(periodMillis, NONE);
+        }
+
+        static Strategy eventDriven(long delayMillis) {
+            return new Strategy(0L, delayMillis);
+        }
+
+        boolean isPolling() {
+            return pollingPeriodMillis > 0L;
+        }
+
+        boolean isEventDriven() {
+            return eventDelayMillis != NONE;
+        }
+
+        @Override
+        public String toString() {
+            final List<String> parts = new ArrayList<String>(2);
+            if (isPolling()) {
+                parts.add("polling every " + pollingPeriodMillis + " ms");
+            }
+            if (isEventDriven()) {
+                parts.add("event-driven after " + eventDelayMillis + " ms");
+            }
+            return parts.isEmpty() ? "never evaluated" : parts.toString();
+        }
+
+    }
+
+    private final Strategy strategy;
+    private final ExclusionMatcher exclusions;
+    private final boolean ignoreNonSuccessfulUpstreamDependencyBuilds;
+    private final boolean restrictToSinkAncestors;
+    private final long settlePeriodMillis;
+
+    PipelineReplay(Strategy strategy, ExclusionMatcher exclusions, boolean ignoreNonSuccessfulUpstreamDependencyBuilds,
+            boolean restrictToSinkAncestors, long settlePeriodMillis) {
+        this.strategy = strategy;
+        this.exclusions = exclusions;
+        this.ignoreNonSuccessfulUpstreamDependencyBuilds = ignoreNonSuccessfulUpstreamDependencyBuilds;
+        this.restrictToSinkAncestors = restrictToSinkAncestors;
+        this.settlePeriodMillis = settlePeriodMillis;
+    }
+
+    /**
+     * Replays the specified timeline (which is left open).
+     *
+     * @throws IllegalArgumentException if a line of the timeline is malformed.
+     */
+    Report replay(Reader timeline) throws IOException {
+        final long start = System.nanoTime();
+        final Simulation simulation = new Simulation();
+        final BufferedReader reader = timeline instanceof BufferedReader ? (BufferedReader) timeline : new BufferedReader(timeline, 1 << 16);
+        final String[] tokens = new String[6];
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            final int tokenCount = tokenize(line, tokens);
+            if (tokenCount == 0 || tokens[0].startsWith("#")) {
+                continue;
+            }
+            try {
+                simulation.apply(tokens, tokenCount);
+            }
+            catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Line %d of the timeline is malformed (%s): %s", lineNumber, e.getMessage(), line));
+            }
+        }
+        simulation.finish();
+        return simulation.report(System.nanoTime() - start);
+    }
+
+    /**
+     * Splits the specified line into (at most {@code tokens.length}) whitespace-separated tokens, without the cost of a regular expression.
+     *
+     * @return the number of tokens.
+     */
+    private static int tokenize(String line, String[] tokens) {
+        int count = 0;
+        int i = 0;
+        final int length = line.length();
+        while (i < length && count < tokens.length) {
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            final int start = i;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                tokens[count++] = line.substring(start, i);
+            }
+        }
+        return count;
+    }
+
+    private static final class Project {
+
+        private int queued;
+        private int building;
+        private BuildStatus lastBuild = BuildStatus.NEVER_BUILT;
+
+        boolean isActive() {
+            return queued > 0 || building > 0;
+        }
+
+    }
+
+    /**
+     * A root/sink pair, along with its evaluation state.
+     */
+    private final class ReplayedPipeline {
+
+        private final String rootProjectName;
+        private final String sinkProjectName;
+        private final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        private final SettleWindow settleWindow = new SettleWindow(settlePeriodMillis);
+        private PipelineFingerprint prevFingerprint;
+
+        private List<String> projects = Collections.emptyList();
+        private boolean hasCycles;
+
+        private boolean changed = true;
+        private TriggerMetrics.Outcome lastOutcome;
+        private long eventEvaluationTime = NONE;
+        private long settleEvaluationTime = NONE;
+        private long lastUpstreamCompletion;
+
+        ReplayedPipeline(String rootProjectName, String sinkProjectName) {
+            this.rootProjectName = rootProjectName;
+            this.sinkProjectName = sinkProjectName;
+        }
+
+    }
+
+    private static final class ScheduledEvaluation {
+
+        private final long time;
+        private final long sequence;
+        private final ReplayedPipeline pipeline;
+
+        ScheduledEvaluation(long time, long sequence, ReplayedPipeline pipeline) {
+            this.time = time;
+            this.sequence = sequence;
+            this.pipeline = pipeline;
+        }
+
+    }
+
+    private static final Comparator<ScheduledEvaluation> CHRONOLOGICAL_ORDER = new Comparator<ScheduledEvaluation>() {
+        public int compare(ScheduledEvaluation a, ScheduledEvaluation b) {
+            if (a.time != b.time) {
+                return a.time < b.time ? -1 : 1;
+            }
+            return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+        }
+    };
+
+    /**
+     * The simulated Hudson model (the projects, their downstream relationships, the build queue and executors), and the replayed trigger.
+     */
+    private final class Simulation implements ProjectGraphSource<String>, ProjectStatusSource<String> {
+
+        private final Map<String, List<String>> downstream = new HashMap<String, List<String>>();
+        private final Map<String, List<String>> upstream = new HashMap<String, List<String>>();
+        private final Map<String, Project> projects = new HashMap<String, Project>();
+        private final List<ReplayedPipeline> pipelines = new ArrayList<ReplayedPipeline>();
+        private final Map<String, List<ReplayedPipeline>> pipelinesByProjectName = new HashMap<String, List<ReplayedPipeline>>();
+        private boolean graphsOutdated = true;
+
+        private final PriorityQueue<ScheduledEvaluation> agenda = new PriorityQueue<ScheduledEvaluation>(64, CHRONOLOGICAL_ORDER);
+        private long sequence;
+        private long now;
+        private long nextPoll = NONE;
+
+        private final PipelineEvaluator<String> evaluator = new PipelineEvaluator<String>(this, ignoreNonSuccessfulUpstreamDependencyBuilds);
+        private final TriggerMetrics metrics = new TriggerMetrics();
+        private final Map<String, Long> triggersBySink = new LinkedHashMap<String, Long>();
+        private long[] timesToTrigger = new long[64];
+        private int timeToTriggerCount;
+        private long eventCount;
+        private long evaluationCount;
+        private long wastedEvaluationCount;
+
+        public String getName(String node) {
+            return node;
+        }
+
+        public List<String> getDownstream(String node) {
+            final List<String> children = downstream.get(node);
+            if (children == null) {
+                return Collections.emptyList();
+            }
+            final List<String> includedChildren = new ArrayList<String>(children.size());
+            for (String child : children) {
+                if (!exclusions.matches(child)) {
+                    includedChildren.add(child);
+                }
+            }
+            return includedChildren;
+        }
+
+        public String getFullName(String node) {
+            return node;
+        }
+
+        public boolean isActive(String node) {
+            final Project project = projects.get(node);
+            return project != null && project.isActive();
+        }
+
+        public BuildStatus getLastBuildStatus(String node) {
+            final Project project = projects.get(node);
+            return project == null ? BuildStatus.NEVER_BUILT : project.lastBuild;
+        }
+
+        void apply(String[] tokens, int tokenCount) {
+            if ("pipeline".equals(tokens[0])) {
+                checkTokenCount(tokenCount, 3);
+                pipelines.add(new ReplayedPipeline(tokens[1], tokens[2]));
+                graphsOutdated = true;
+                return;
+            }
+            if ("edge".equals(tokens[0])) {
+                checkTokenCount(tokenCount, 3);
+                addTo(downstream, tokens[1], tokens[2]);
+                addTo(upstream, tokens[2], tokens[1]);
+                graphsOutdated = true;
+                return;
+            }
+            checkTokenCount(tokenCount, 3);
+            final long time;
+            try {
+                time = Long.parseLong(tokens[0]);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid time");
+            }
+            if (strategy.isPolling() && nextPoll == NONE) {
+                // The polls take place at multiples of the polling period (like the minutes of a cron schedule).
+                nextPoll = (Math.max(now, time) / strategy.pollingPeriodMillis + 1) * strategy.pollingPeriodMillis;
+            }
+            advanceTo(Math.max(now, time), true);
+            final String event = tokens[1];
+            final Project project = getProject(tokens[2]);
+            if ("queued".equals(event)) {
+                project.queued++;
+            }
+            else if ("dequeued".equals(event)) {
+                project.queued = Math.max(0, project.queued - 1);
+            }
+            else if ("started".equals(event)) {
+                checkTokenCount(tokenCount, 4);
+                project.queued = Math.max(0, project.queued - 1);
+                project.building++;
+                project.lastBuild = new BuildStatus(tokens[3], null);
+            }
+            else if ("completed".equals(event)) {
+                checkTokenCount(tokenCount, 5);
+                project.building = Math.max(0, project.building - 1);
+                project.lastBuild = new BuildStatus(tokens[3], Result.fromString(tokens[4]));
+            }
+            else {
+                throw new IllegalArgumentException("unknown event");
+            }
+            eventCount++;
+            onEvent(tokens[2], "completed".equals(event));
+        }
+
+        private void checkTokenCount(int tokenCount, int expected) {
+            if (tokenCount < expected) {
+                throw new IllegalArgumentException("missing fields");
+            }
+        }
+
+        private void addTo(Map<String, List<String>> relationships, String from, String to) {
+            List<String> targets = relationships.get(from);
+            if (targets == null) {
+                targets = new ArrayList<String>(2);
+                relationships.put(from, targets);
+            }
+            if (!targets.contains(to)) {
+                targets.add(to);
+            }
+        }
+
+        private Project getProject(String name) {
+            Project project = projects.get(name);
+            if (project == null) {
+                project = new Project();
+                projects.put(name, project);
+            }
+            return project;
+        }
+
+        /**
+         * Marks the pipelines the specified project is part of as changed, and requests their (event-driven) evaluation if a build completed.
+         */
+        private void onEvent(String projectName, boolean completed) {
+            updateGraphs();
+            final List<ReplayedPipeline> affectedPipelines = pipelinesByProjectName.get(projectName);
+            if (affectedPipelines == null) {
+                return;
+            }
+            for (ReplayedPipeline pipeline : affectedPipelines) {
+                pipeline.changed = true;
+                if (!completed) {
+                    continue;
+                }
+                if (!projectName.equals(pipeline.sinkProjectName)) {
+                    pipeline.lastUpstreamCompletion = now;
+                }
+                if (strategy.isEventDriven() && pipeline.eventEvaluationTime == NONE) {
+                    pipeline.eventEvaluationTime = now + strategy.eventDelayMillis;
+                    agenda.add(new ScheduledEvaluation(pipeline.eventEvaluationTime, sequence++, pipeline));
+                }
+            }
+        }
+
+        /**
+         * (Re)constructs the build pipeline graphs, if the pipelines or the downstream relationships changed since they were constructed.
+         */
+        private void updateGraphs() {
+            if (!graphsOutdated) {
+                return;
+            }
+            pipelinesByProjectName.clear();
+            for (ReplayedPipeline pipeline : pipelines) {
+                final PipelineGraph<String> graph = new PipelineGraphBuilder<String>(this).build(pipeline.rootProjectName);
+                final PipelineGraph.Analysis analysis = graph.analyze();
+                pipeline.hasCycles = analysis.hasCycles();
+                BitSet slice = null;
+                if (restrictToSinkAncestors) {
+                    final List<String> upstreamProjects = upstream.containsKey(pipeline.sinkProjectName)
+                            ? upstream.get(pipeline.sinkProjectName) : Collections.<String>emptyList();
+                    final int[] seeds = new int[upstreamProjects.size()];
+                    int seedCount = 0;
+                    for (String upstreamProject : upstreamProjects) {
+                        final int id = graph.getId(upstreamProject);
+                        if (id >= 0 && !upstreamProject.equals(pipeline.sinkProjectName)) {
+                            seeds[seedCount++] = id;
+                        }
+                    }
+                    slice = graph.getAncestors(Arrays.copyOf(seeds, seedCount));
+                    if (graph.getId(pipeline.sinkProjectName) >= 0) {
+                        slice.clear(graph.getId(pipeline.sinkProjectName));
+                    }
+                }
+                final List<String> evaluatedProjects = new ArrayList<String>(graph.getNodeCount());
+                for (int id : analysis.getTopologicalOrder()) {
+                    if (slice == null || slice.get(id)) {
+                        evaluatedProjects.add(graph.getNode(id));
+                    }
+                    addTo(pipelinesByProjectName, graph.getNode(id), pipeline);
+                }
+                addTo(pipelinesByProjectName, pipeline.sinkProjectName, pipeline);
+                pipeline.projects = ImmutableList.copyOf(evaluatedProjects);
+                pipeline.changed = true;
+            }
+            graphsOutdated = false;
+        }
+
+        private void addTo(Map<String, List<ReplayedPipeline>> index, String projectName, ReplayedPipeline pipeline) {
+            List<ReplayedPipeline> projectPipelines = index.get(projectName);
+            if (projectPipelines == null) {
+                projectPipelines = new ArrayList<ReplayedPipeline>(1);
+                index.put(projectName, projectPipelines);
+            }
+            if (!projectPipelines.contains(pipeline)) {
+                projectPipelines.add(pipeline);
+            }
+        }
+
+        /**
+         * Carries out the evaluations that are due up to the specified time (the polls included, unless {@code poll} is {@code false}).
+         */
+        private void advanceTo(long time, boolean poll) {
+            while (true) {
+                final long nextScheduled = agenda.isEmpty() ? NONE : agenda.peek().time;
+                final long nextPolling = poll ? nextPoll : NONE;
+                final long next = Math.min(nextScheduled, nextPolling);
+                if (next == NONE || next > time) {
+                    break;
+                }
+                now = next;
+                if (next == nextPolling) {
+                    for (ReplayedPipeline pipeline : pipelines) {
+                        evaluate(pipeline);
+                    }
+                    nextPoll += strategy.pollingPeriodMillis;
+                    continue;
+                }
+                final ScheduledEvaluation scheduled = agenda.poll();
+                final ReplayedPipeline pipeline = scheduled.pipeline;
+                // The event-driven and settle evaluations due at the same time are coalesced.
+                if (pipeline.eventEvaluationTime == scheduled.time || pipeline.settleEvaluationTime == scheduled.time) {
+                    if (pipeline.eventEvaluationTime == scheduled.time) {
+                        pipeline.eventEvaluationTime = NONE;
+                    }
+                    if (pipeline.settleEvaluationTime == scheduled.time) {
+                        pipeline.settleEvaluationTime = NONE;
+                    }
+                    evaluate(pipeline);
+                }
+            }
+            if (time != NONE) {
+                now = Math.max(now, time);
+            }
+        }
+
+        /**
+         * Carries out the evaluations still pending at the end of the timeline: the first poll following the last event (the subsequent ones
+         * would only repeat it), and the scheduled evaluations.
+         */
+        void finish() {
+            updateGraphs();
+            if (nextPoll != NONE) {
+                advanceTo(nextPoll, true);
+            }
+            advanceTo(NONE, false);
+        }
+
+        private void evaluate(ReplayedPipeline pipeline) {
+            updateGraphs();
+            evaluationCount++;
+            final boolean changed = pipeline.changed;
+            pipeline.changed = false;
+            final TriggerMetrics.Outcome outcome;
+            if (!changed && pipeline.lastOutcome != null && REPEATABLE_OUTCOMES.contains(pipeline.lastOutcome)) {
+                // Nothing changed since the previous evaluation, which would thus be repeated as is.
+                outcome = pipeline.lastOutcome;
+            }
+            else {
+                outcome = decide(pipeline);
+            }
+            if (!changed && outcome != TriggerMetrics.Outcome.TRIGGERED && outcome != TriggerMetrics.Outcome.BASELINE) {
+                wastedEvaluationCount++;
+            }
+            metrics.recordOutcome(outcome);
+            pipeline.lastOutcome = outcome;
+        }
+
+        /**
+         * Decides as {@code BuildGraphPipelineSinkTrigger#decide} does: a pair is skipped while its sink is building, or its graph has cycles,
+         * and the outcome is otherwise resolved by {@link PipelineEvaluator.Decision#resolveOutcome}, as by the trigger.
+         */
+        private TriggerMetrics.Outcome decide(ReplayedPipeline pipeline) {
+            final Project sink = projects.get(pipeline.sinkProjectName);
+            if ((sink != null && sink.building > 0) || pipeline.hasCycles) {
+                return TriggerMetrics.Outcome.SKIPPED;
+            }
+            final PipelineEvaluator.Decision decision = evaluator.evaluate(pipeline.projects, pipeline.fingerprint, pipeline.prevFingerprint);
+            final TriggerMetrics.Outcome outcome = decision.resolveOutcome(pipeline.settleWindow, pipeline.fingerprint, now);
+            switch (outcome) {
+                case BASELINE:
+                    pipeline.prevFingerprint = pipeline.fingerprint.copy();
+                    break;
+                case SETTLING:
+                    if (pipeline.settleEvaluationTime == NONE) {
+                        pipeline.settleEvaluationTime = now + pipeline.settleWindow.getRemaining(now);
+                        agenda.add(new ScheduledEvaluation(pipeline.settleEvaluationTime, sequence++, pipeline));
+                    }
+                    break;
+                case TRIGGERED:
+                    pipeline.prevFingerprint = pipeline.fingerprint.copy();
+                    onTrigger(pipeline);
+                    break;
+                default:
+                    break;
+            }
+            return outcome;
+        }
+
+        private void onTrigger(ReplayedPipeline pipeline) {
+            final Long triggers = triggersBySink.get(pipeline.sinkProjectName);
+            triggersBySink.put(pipeline.sinkProjectName, triggers == null ? 1L : triggers + 1L);
+            if (pipeline.lastUpstreamCompletion > 0L) {
+                if (timeToTriggerCount == timesToTrigger.length) {
+                    timesToTrigger = Arrays.copyOf(timesToTrigger, timesToTrigger.length * 2);
+                }
+                timesToTrigger[timeToTriggerCount++] = now - pipeline.lastUpstreamCompletion;
+                pipeline.lastUpstreamCompletion = 0L;
+            }
+        }
+
+        Report report(long elapsedNanos) {
+            final Map<String, Long> outcomes = new LinkedHashMap<String, Long>();
+            for (TriggerMetrics.Outcome outcome : TriggerMetrics.Outcome.values()) {
+                if (metrics.getOutcomeCount(outcome) > 0) {
+                    outcomes.put(outcome.name(), metrics.getOutcomeCount(outcome));
+                }
+            }
+            final long[] sortedTimesToTrigger = Arrays.copyOf(timesToTrigger, timeToTriggerCount);
+            Arrays.sort(sortedTimesToTrigger);
+            return new Report(strategy, eventCount, evaluationCount, wastedEvaluationCount, outcomes, triggersBySink, sortedTimesToTrigger,
+                    elapsedNanos);
+        }
+
+    }
+
+    /**
+     * The outcome of the replay of a timeline.
+     */
+    static final class Report {
+
+        private final Strategy strategy;
+        private final long eventCount;
+        private final long evaluationCount;
+        private final long wastedEvaluationCount;
+        private final Map<String, Long> outcomes;
+        private final Map<String, Long> triggersBySink;
+        private final long[] timesToTrigger;
+        private final long elapsedNanos;
+
+        Report(Strategy strategy, long eventCount, long evaluationCount, long wastedEvaluationCount, Map<String, Long> outcomes,
+                Map<String, Long> triggersBySink, long[] timesToTrigger, long elapsedNanos) {
+            this.strategy = strategy;
+            this.eventCount = eventCount;
+            this.evaluationCount = evaluationCount;
+            this.wastedEvaluationCount = wastedEvaluationCount;
+            this.outcomes = Collections.unmodifiableMap(outcomes);
+            this.triggersBySink = Collections.unmodifiableMap(triggersBySink);
+            this.timesToTrigger = timesToTrigger;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        long getEventCount() {
+            return eventCount;
+        }
+
+        long getEvaluationCount() {
+            return evaluationCount;
+        }
+
+        /**
+         * @return the number of evaluations that took place although none of the projects of the pipeline changed since the previous one, and
+         * that could not have changed anything (i.e. whose outcome was neither a build of the sink, nor the recording of the initial fingerprint).
+         */
+        long getWastedEvaluationCount() {
+            return wastedEvaluationCount;
+        }
+
+        /**
+         * @return the number of evaluations by outcome (see {@link TriggerMetrics.Outcome}), the outcomes that never occurred being left out.
+         */
+        Map<String, Long> getOutcomes() {
+            return outcomes;
+        }
+
+        /**
+         * @return the number of builds that would have been scheduled, by sink project.
+         */
+        Map<String, Long> getTriggersBySink() {
+            return triggersBySink;
+        }
+
+        long getTriggerCount() {
+            long count = 0L;
+            for (Long triggers : triggersBySink.values()) {
+                count += triggers;
+            }
+            return count;
+        }
+
+        /**
+         * @return the times (in milliseconds) elapsed between the completion of the last upstream dependency build and the scheduling of a
+         * build of the sink, in ascending order.
+         */
+        long[] getTimesToTrigger() {
+            return timesToTrigger.clone();
+        }
+
+        /**
+         * @return the specified percentile (nearest-rank) of the times to trigger (in milliseconds), or {@code 0} if no build was scheduled.
+         */
+        long getTimeToTriggerPercentile(double percentile) {
+            if (timesToTrigger.length == 0) {
+                return 0L;
+            }
+            final int rank = (int) Math.ceil(percentile / 100.0 * timesToTrigger.length);
+            return timesToTrigger[Math.min(timesToTrigger.length, Math.max(1, rank)) - 1];
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder report = new StringBuilder();
+            report.append(String.format("Strategy: %s%n", strategy));
+            report.append(String.format("Events replayed: %d (in %d ms)%n", eventCount, TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+            report.append(String.format("Evaluations: %d (wasted: %d), by outcome: %s%n", evaluationCount, wastedEvaluationCount, outcomes));
+            report.append(String.format("Builds of the sinks scheduled: %d, by sink: %s%n", getTriggerCount(), triggersBySink));
+            report.append(String.format("Time to trigger (ms): p50=%d, p90=%d, p99=%d, max=%d%n", getTimeToTriggerPercentile(50),
+                    getTimeToTriggerPercentile(90), getTimeToTriggerPercentile(99), getTimeToTriggerPercentile(100)));
+            return report.toString();
+        }
+
+    }
+
+}
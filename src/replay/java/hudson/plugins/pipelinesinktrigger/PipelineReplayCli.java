@@ -0,0 +1,81 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line of the {@link PipelineReplay}, which prints the {@link PipelineReplay.Report} of each strategy (polling every 60 seconds,
+ * and event-driven with a 2.5 seconds delay, if none is specified).
+ *
+ * <p>Run with: {@code mvn -P replay test-compile exec:exec -Dreplay.args="<timeline> [--poll=<ms>]... [--event=<ms>]...
+ * [--settle=<seconds>] [--exclude=<exclusions>] [--ignore-non-successful] [--restrict-to-sink-ancestors]"}.</p>
+ */
+public final class PipelineReplayCli {
+
+    private PipelineReplayCli() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String timelineFileName = null;
+        final List<PipelineReplay.Strategy> strategies = new ArrayList<PipelineReplay.Strategy>();
+        final Set<String> exclusions = new LinkedHashSet<String>();
+        boolean ignoreNonSuccessful = false;
+        boolean restrictToSinkAncestors = false;
+        long settlePeriodMillis = 0L;
+        for (String arg : args) {
+            if (arg.startsWith("--poll=")) {
+                strategies.add(PipelineReplay.Strategy.polling(Long.parseLong(arg.substring("--poll=".length()))));
+            }
+            else if (arg.startsWith("--event=")) {
+                strategies.add(PipelineReplay.Strategy.eventDriven(Long.parseLong(arg.substring("--event=".length()))));
+            }
+            else if (arg.startsWith("--settle=")) {
+                settlePeriodMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(arg.substring("--settle=".length())));
+            }
+            else if (arg.startsWith("--exclude=")) {
+                exclusions.addAll(ExclusionMatcher.split(arg.substring("--exclude=".length())));
+            }
+            else if (arg.equals("--ignore-non-successful")) {
+                ignoreNonSuccessful = true;
+            }
+            else if (arg.equals("--restrict-to-sink-ancestors")) {
+                restrictToSinkAncestors = true;
+            }
+            else if (!arg.startsWith("--") && timelineFileName == null) {
+                timelineFileName = arg;
+            }
+            else {
+                timelineFileName = null;
+                break;
+            }
+        }
+        if (timelineFileName == null) {
+            System.err.println("Usage: PipelineReplayCli <timeline> [--poll=<ms>]... [--event=<ms>]... [--settle=<seconds>] "
+                    + "[--exclude=<exclusions>] [--ignore-non-successful] [--restrict-to-sink-ancestors]");
+            System.exit(2);
+        }
+        if (strategies.isEmpty()) {
+            strategies.add(PipelineReplay.Strategy.polling(TimeUnit.MINUTES.toMillis(1)));
+            strategies.add(PipelineReplay.Strategy.eventDriven(2500L));
+        }
+        for (PipelineReplay.Strategy strategy : strategies) {
+            final PipelineReplay replay = new PipelineReplay(strategy, ExclusionMatcher.compile(exclusions), ignoreNonSuccessful,
+                    restrictToSinkAncestors, settlePeriodMillis);
+            final Reader timeline = new InputStreamReader(new FileInputStream(timelineFileName), "UTF-8");
+            try {
+                System.out.println(replay.replay(timeline));
+            }
+            finally {
+                timeline.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+public class TestPipelineReplay {
+
+    private static final String GRAPH = "pipeline Root Sink\nedge Root Job-1\nedge Job-1 Job-2\n";
+
+    /**
+     * A first round of builds of the pipeline (completing at 1000), followed by a second one (completing at 301000).
+     */
+    private static final String TWO_ROUNDS = GRAPH
+            + "0 queued Root\n100 started Root 1\n500 completed Root 1 SUCCESS\n600 started Job-1 1\n800 completed Job-1 1 SUCCESS\n"
+            + "900 started Job-2 1\n1000 completed Job-2 1 SUCCESS\n"
+            + "300000 started Root 2\n300500 completed Root 2 SUCCESS\n300600 started Job-1 2\n301000 completed Job-1 2 SUCCESS\n";
+
+    private static PipelineReplay.Report replay(PipelineReplay.Strategy strategy, String timeline) throws IOException {
+        return replay(strategy, timeline, false, 0L);
+    }
+
+    private static PipelineReplay.Report replay(PipelineReplay.Strategy strategy, String timeline, boolean ignoreNonSuccessful,
+            long settlePeriodMillis) throws IOException {
+        return new PipelineReplay(strategy, ExclusionMatcher.compile(Collections.<String>emptySet()), ignoreNonSuccessful, false,
+                settlePeriodMillis).replay(new StringReader(timeline));
+    }
+
+    @Test
+    public void replayShouldRecordABaselineAndThenTriggerOnTheNextChanges() throws IOException {
+        final PipelineReplay.Report report = replay(PipelineReplay.Strategy.polling(60000L), TWO_ROUNDS);
+        assertEquals(11, report.getEventCount());
+        assertEquals(Long.valueOf(1L), report.getOutcomes().get("BASELINE"));
+        assertEquals(1L, report.getTriggerCount());
+        assertEquals(Long.valueOf(1L), report.getTriggersBySink().get("Sink"));
+        // The second round completed at 301000, the next poll taking place at 360000.
+        assertArrayEquals(new long[] { 59000L }, report.getTimesToTrigger());
+    }
+
+    @Test
+    public void replayShouldCountThePollsTakingPlaceWithoutAnyChangeAsWasted() throws IOException {
+        final PipelineReplay.Report report = replay(PipelineReplay.Strategy.polling(60000L), TWO_ROUNDS);
+        // Polls at 60000 (baseline), 120000, 180000, 240000, 300000 (just before the second round started), and 360000 (triggered).
+        assertEquals(6, report.getEvaluationCount());
+        assertEquals(4, report.getWastedEvaluationCount());
+        assertEquals(Long.valueOf(4L), report.getOutcomes().get("UNCHANGED"));
+    }
+
+    @Test
+    public void replayShouldEvaluateAfterTheDelayFollowingACompletionWhenEventDriven() throws IOException {
+        final PipelineReplay.Report report = replay(PipelineReplay.Strategy.eventDriven(2000L), TWO_ROUNDS);
+        assertEquals(1L, report.getTriggerCount());
+        // The completions are coalesced: the evaluation took place 2000 ms after the completion of the root (at 300500).
+        assertArrayEquals(new long[] { 1500L }, report.getTimesToTrigger());
+        assertEquals(0, report.getWastedEvaluationCount());
+    }
+
+    @Test
+    public void replayShouldWaitForThePipelineToSettle() throws IOException {
+        final PipelineReplay.Report report = replay(PipelineReplay.Strategy.eventDriven(2000L), TWO_ROUNDS, false, 10000L);
+        assertEquals(1L, report.getTriggerCount());
+        assertEquals(Long.valueOf(1L), report.getOutcomes().get("SETTLING"));
+        assertArrayEquals(new long[] { 11500L }, report.getTimesToTrigger());
+    }
+
+    @Test
+    public void replayShouldNotTriggerWhileAnUpstreamBuildIsNotSuccessfulUnlessIgnored() throws IOException {
+        final String timeline = TWO_ROUNDS + "302000 started Job-2 2\n302500 completed Job-2 2 FAILURE\n";
+        final PipelineReplay.Strategy strategy = PipelineReplay.Strategy.polling(60000L);
+        PipelineReplay.Report report = replay(strategy, timeline);
+        assertEquals(0L, report.getTriggerCount());
+        assertEquals(Long.valueOf(1L), report.getOutcomes().get("UNSTABLE"));
+        report = replay(strategy, timeline, true, 0L);
+        assertEquals(1L, report.getTriggerCount());
+    }
+
+    @Test
+    public void replayShouldSkipTheEvaluationOfAPipelineContainingCycles() throws IOException {
+        final PipelineReplay.Report report = replay(PipelineReplay.Strategy.eventDriven(2000L), "edge Job-2 Job-1\n" + TWO_ROUNDS);
+        assertEquals(Long.valueOf(2L), report.getOutcomes().get("SKIPPED"));
+        assertEquals(0L, report.getTriggerCount());
+    }
+
+    @Test
+    public void replayShouldLeaveTheExcludedProjectsOut() throws IOException {
+        final PipelineReplay.Report report = new PipelineReplay(PipelineReplay.Strategy.polling(60000L),
+                ExclusionMatcher.compile(ImmutableSet.of("Job-*")), false, false, 0L).replay(new StringReader(TWO_ROUNDS));
+        // Only the builds of the root are accounted for (its second build completed at 300500).
+        assertArrayEquals(new long[] { 59500L }, report.getTimesToTrigger());
+    }
+
+    @Test
+    public void replayShouldRejectAMalformedLine() throws IOException {
+        try {
+            replay(PipelineReplay.Strategy.polling(60000L), GRAPH + "100 started Root\n");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Line 4 "));
+            return;
+        }
+        throw new AssertionError("A malformed line should be rejected.");
+    }
+
+    @Test
+    public void getTimeToTriggerPercentileShouldUseTheNearestRank() {
+        final PipelineReplay.Report report = new PipelineReplay.Report(PipelineReplay.Strategy.polling(1L), 0L, 0L, 0L,
+                Collections.<String, Long>emptyMap(), Collections.<String, Long>emptyMap(), new long[] { 10L, 20L, 30L, 40L }, 0L);
+        assertEquals(20L, report.getTimeToTriggerPercentile(50));
+        assertEquals(40L, report.getTimeToTriggerPercentile(90));
+        assertEquals(10L, report.getTimeToTriggerPercentile(0));
+        assertTrue(Arrays.equals(new long[] { 10L, 20L, 30L, 40L }, report.getTimesToTrigger()));
+    }
+
+}
@@ -0,0 +1,289 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import hudson.model.Cause;
+import hudson.model.FreeStyleProject;
+import hudson.model.Queue;
+import hudson.model.Result;
+import hudson.tasks.BuildTrigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+/**
+ * Scale (soak) test of the {@link BuildGraphPipelineSinkTrigger} against a live Hudson (started by the {@link HudsonTestCase} harness).
+ *
+ * <p>Thousands of freestyle projects are wired through {@link BuildTrigger} publishers into a generated topology, and observed by many triggers
+ * rooted at the same project (each one with its own sink project). The builds are driven through the build queue and executors of Hudson, and
+ * the triggers are evaluated in sweeps, as {@link PipelineSweep} does (one activity snapshot being shared by all the triggers).</p>
+ *
+ * <p>Besides the decisions of the triggers, the test records the latency of the sweeps, the heap growth over a series of sweeps, and the time a
+ * concurrent probe thread waits for the lock of the build queue, and fails if any of them exceeds its threshold. The scale and the thresholds
+ * are set through system properties (see the <code>scale</code> profile of the POM):</p>
+ * <ul>
+ *   <li><code>scale.jobs</code>: the number of projects of the build pipeline graph (default 2000).</li>
+ *   <li><code>scale.triggers</code>: the number of triggers, i.e. of sink projects (default 50).</li>
+ *   <li><code>scale.topology</code>: <code>layered</code> (default; every project depends on two projects of the previous layer),
+ *   <code>fanout</code> (every project depends on the root), or <code>chain</code>.</li>
+ *   <li><code>scale.rounds</code>: the number of rounds of builds (default 10), and <code>scale.soakSweeps</code> the number of sweeps over an
+ *   unchanged pipeline (default 200).</li>
+ *   <li><code>scale.maxSweepMillis</code>: the maximum 95th percentile of the latency of the sweeps (default 1000).</li>
+ *   <li><code>scale.maxHeapGrowthMB</code>: the maximum heap growth over the sweeps over an unchanged pipeline (default 32).</li>
+ *   <li><code>scale.maxQueueLockWaitMillis</code>: the maximum time waited for the lock of the build queue (default 250).</li>
+ * </ul>
+ *
+ * <p>Run with: {@code mvn -P scale test [-Dscale.jobs=5000 ...]}.</p>
+ */
+public class PipelineSinkTriggerScaleTest extends HudsonTestCase {
+
+    private static final Logger LOGGER = Logger.getLogger(PipelineSinkTriggerScaleTest.class.getName());
+
+    private static final int JOBS = Integer.getInteger("scale.jobs", 2000);
+    private static final int TRIGGERS = Integer.getInteger("scale.triggers", 50);
+    private static final String TOPOLOGY = System.getProperty("scale.topology", "layered");
+    private static final int ROUNDS = Integer.getInteger("scale.rounds", 10);
+    private static final int SOAK_SWEEPS = Integer.getInteger("scale.soakSweeps", 200);
+    private static final long MAX_SWEEP_MILLIS = Long.getLong("scale.maxSweepMillis", 1000L);
+    private static final long MAX_HEAP_GROWTH_MB = Long.getLong("scale.maxHeapGrowthMB", 32L);
+    private static final long MAX_QUEUE_LOCK_WAIT_MILLIS = Long.getLong("scale.maxQueueLockWaitMillis", 250L);
+
+    /**
+     * A cron schedule that does not fire while the test runs (the sweeps are carried out by the test itself).
+     */
+    private static final String SPEC = "0 0 1 1 *";
+
+    private final List<FreeStyleProject> projects = new ArrayList<FreeStyleProject>();
+    private final List<FreeStyleProject> leaves = new ArrayList<FreeStyleProject>();
+    private final List<FreeStyleProject> sinks = new ArrayList<FreeStyleProject>();
+    private final List<BuildGraphPipelineSinkTrigger> triggers = new ArrayList<BuildGraphPipelineSinkTrigger>();
+    private final List<Long> sweepNanos = new ArrayList<Long>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        hudson.setQuietPeriod(0);
+        hudson.setNumExecutors(4);
+        createPipeline();
+        for (int i = 0; i < TRIGGERS; i++) {
+            final FreeStyleProject sink = createFreeStyleProject("Sink-" + i);
+            sinks.add(sink);
+            final FreeStyleProject observer = createFreeStyleProject("Observer-" + i);
+            final BuildGraphPipelineSinkTrigger trigger = new BuildGraphPipelineSinkTrigger(SPEC, projects.get(0).getName(), sink.getName(), "",
+                    false, false, false, false, 0, "");
+            observer.addTrigger(trigger);
+            trigger.start(observer, true);
+            triggers.add(trigger);
+        }
+    }
+
+    /**
+     * Creates the projects of the build pipeline graph, {@code Job-0} being the root.
+     */
+    private void createPipeline() throws Exception {
+        for (int i = 0; i < JOBS; i++) {
+            projects.add(createFreeStyleProject("Job-" + i));
+        }
+        final List<List<String>> downstream = new ArrayList<List<String>>(JOBS);
+        for (int i = 0; i < JOBS; i++) {
+            downstream.add(new ArrayList<String>());
+        }
+        final Random random = new Random(42L);
+        final int width = Math.max(1, (int) Math.sqrt(JOBS));
+        for (int i = 1; i < JOBS; i++) {
+            if ("chain".equals(TOPOLOGY)) {
+                downstream.get(i - 1).add("Job-" + i);
+            }
+            else if ("fanout".equals(TOPOLOGY)) {
+                downstream.get(0).add("Job-" + i);
+            }
+            else {
+                // The first layer depends on the root, and every other project on two projects of the previous layer.
+                final int layer = (i - 1) / width;
+                if (layer == 0) {
+                    downstream.get(0).add("Job-" + i);
+                }
+                else {
+                    final int previousLayerStart = 1 + (layer - 1) * width;
+                    final int first = previousLayerStart + random.nextInt(width);
+                    final int second = previousLayerStart + random.nextInt(width);
+                    downstream.get(first).add("Job-" + i);
+                    if (second != first) {
+                        downstream.get(second).add("Job-" + i);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < JOBS; i++) {
+            if (downstream.get(i).isEmpty()) {
+                leaves.add(projects.get(i));
+            }
+            else {
+                projects.get(i).getPublishersList().add(new BuildTrigger(StringUtils.join(downstream.get(i), ','), Result.SUCCESS));
+            }
+        }
+        hudson.rebuildDependencyGraph();
+    }
+
+    /**
+     * Evaluates all the triggers against a single activity snapshot (i.e. a {@link PipelineSweep}), recording its latency.
+     */
+    private void sweep() {
+        final long start = System.nanoTime();
+        final HudsonProjectStatusSource statusSource = HudsonProjectStatusSource.capture();
+        for (BuildGraphPipelineSinkTrigger trigger : triggers) {
+            trigger.evaluate(statusSource);
+        }
+        sweepNanos.add(System.nanoTime() - start);
+    }
+
+    private void assertSinkBuildCount(int expected) throws Exception {
+        waitUntilNoActivity();
+        for (FreeStyleProject sink : sinks) {
+            assertEquals(sink.getName(), expected, sink.getBuilds().size());
+        }
+    }
+
+    private long getOutcomeCount(TriggerMetrics.Outcome outcome) {
+        long count = 0L;
+        for (BuildGraphPipelineSinkTrigger trigger : triggers) {
+            count += trigger.getMetrics().getOutcomeCount(outcome);
+        }
+        return count;
+    }
+
+    private static long percentile(List<Long> values, double percentile) {
+        final long[] sorted = new long[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted.length == 0 ? 0L : sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    private static long usedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public void testTriggersScheduleTheSinksOnceWhenThePipelineIsInactiveStableAndStale() throws Exception {
+        final QueueLockProbe probe = new QueueLockProbe(hudson.getQueue());
+        probe.start();
+        try {
+            // The first sweep records the initial fingerprints.
+            sweep();
+            assertEquals(TRIGGERS, getOutcomeCount(TriggerMetrics.Outcome.BASELINE));
+            sweep();
+            assertSinkBuildCount(0);
+
+            final Random random = new Random(42L);
+            for (int round = 1; round <= ROUNDS; round++) {
+                final FreeStyleProject leaf = leaves.get(random.nextInt(leaves.size()));
+                // A project of the pipeline scheduled in the build queue keeps the pipeline active.
+                assertTrue(leaf.scheduleBuild(3600, new Cause.UserCause()));
+                sweep();
+                assertTrue(hudson.getQueue().cancel(leaf));
+                assertSinkBuildCount(round - 1);
+
+                assertBuildStatusSuccess(leaf.scheduleBuild2(0));
+                sweep();
+                assertSinkBuildCount(round);
+                // The same changes never cause a second build of the sinks.
+                sweep();
+                assertSinkBuildCount(round);
+            }
+            assertEquals(TRIGGERS * ROUNDS, getOutcomeCount(TriggerMetrics.Outcome.TRIGGERED));
+            assertEquals(TRIGGERS * ROUNDS, getOutcomeCount(TriggerMetrics.Outcome.ACTIVE));
+            assertEquals(0L, getOutcomeCount(TriggerMetrics.Outcome.ERROR));
+
+            // Sweeps over an unchanged pipeline must not retain memory.
+            sweep();
+            final long usedHeapBefore = usedHeapAfterGc();
+            for (int i = 0; i < SOAK_SWEEPS; i++) {
+                sweep();
+            }
+            final long heapGrowthMB = (usedHeapAfterGc() - usedHeapBefore) / (1024L * 1024L);
+            assertSinkBuildCount(ROUNDS);
+
+            final long p95SweepMillis = TimeUnit.NANOSECONDS.toMillis(percentile(sweepNanos, 95));
+            final long maxSweepMillis = TimeUnit.NANOSECONDS.toMillis(percentile(sweepNanos, 100));
+            final long maxQueueLockWaitMillis = TimeUnit.NANOSECONDS.toMillis(probe.getMaxWaitNanos());
+            LOGGER.info(String.format("Scale test (%d %s projects, %d triggers): %d sweeps, p50=%d ms, p95=%d ms, max=%d ms; heap growth over %d "
+                    + "sweeps: %d MB; queue lock: max wait=%d ms over %d acquisitions", JOBS, TOPOLOGY, TRIGGERS, sweepNanos.size(),
+                    TimeUnit.NANOSECONDS.toMillis(percentile(sweepNanos, 50)), p95SweepMillis, maxSweepMillis, SOAK_SWEEPS, heapGrowthMB,
+                    maxQueueLockWaitMillis, probe.getAcquisitions()));
+            assertTrue(String.format("p95 sweep latency of %d ms exceeds %d ms", p95SweepMillis, MAX_SWEEP_MILLIS),
+                    p95SweepMillis <= MAX_SWEEP_MILLIS);
+            assertTrue(String.format("heap growth of %d MB exceeds %d MB", heapGrowthMB, MAX_HEAP_GROWTH_MB), heapGrowthMB <= MAX_HEAP_GROWTH_MB);
+            assertTrue(String.format("queue lock wait of %d ms exceeds %d ms", maxQueueLockWaitMillis, MAX_QUEUE_LOCK_WAIT_MILLIS),
+                    maxQueueLockWaitMillis <= MAX_QUEUE_LOCK_WAIT_MILLIS);
+        }
+        finally {
+            probe.stopProbing();
+        }
+    }
+
+    /**
+     * Repeatedly acquires the lock of the build queue (i.e. the monitor of the {@link Queue}, as its scheduling and maintenance do), recording
+     * the longest wait.
+     */
+    private static final class QueueLockProbe extends Thread {
+
+        private final Queue queue;
+        private final AtomicBoolean probing = new AtomicBoolean(true);
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong acquisitions = new AtomicLong();
+
+        QueueLockProbe(Queue queue) {
+            super("Queue lock probe");
+            this.queue = queue;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (probing.get()) {
+                final long start = System.nanoTime();
+                synchronized (queue) {
+                    acquisitions.incrementAndGet();
+                }
+                final long wait = System.nanoTime() - start;
+                if (wait > maxWaitNanos.get()) {
+                    maxWaitNanos.set(wait);
+                }
+                try {
+                    Thread.sleep(1L);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long getMaxWaitNanos() {
+            return maxWaitNanos.get();
+        }
+
+        long getAcquisitions() {
+            return acquisitions.get();
+        }
+
+        void stopProbing() throws InterruptedException {
+            probing.set(false);
+            join();
+        }
+
+    }
+
+}
@@ -4,7 +4,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestBuildGraphPipelineSinkTrigger.class })
+@SuiteClasses({ TestBuildGraphPipelineSinkTrigger.class, TestPipelineGraph.class, TestPipelineGraphBuilder.class, TestPipelineFingerprint.class, TestPipelineEvaluator.class, TestPipelineTriggerRegistry.class, TestSettleWindow.class, TestTriggerMetrics.class, TestDecisionLog.class, TestSinkPipeline.class, TestExclusionMatcher.class, TestPipelineStatus.class, TestPipelineEvaluationExecutor.class, TestLastBuildStatusCache.class })
 public class AllUnitTestTriggerSuite {
 
 }
\ No newline at end of file
@@ -4,6 +4,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import hudson.triggers.Trigger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
 import org.antlr.runtime.RecognitionException;
 import org.junit.Test;
 
@@ -14,7 +22,7 @@ public class TestBuildGraphPipelineSinkTrigger {
     private static final String DEFAULT_SINK_PROJECT_NAME = "Mock-Sink";
 
     private BuildGraphPipelineSinkTrigger newBuildGraphPipelineSinkTrigger(String excludedProjectNames) throws RecognitionException {
-        return new BuildGraphPipelineSinkTrigger(DEFAULT_SPEC, DEFAULT_ROOT_PROJECT_NAME, DEFAULT_SINK_PROJECT_NAME, excludedProjectNames, false, false);
+        return new BuildGraphPipelineSinkTrigger(DEFAULT_SPEC, DEFAULT_ROOT_PROJECT_NAME, DEFAULT_SINK_PROJECT_NAME, excludedProjectNames, false, false, false, false, 0, "");
     }
 
     @Test
@@ -92,4 +100,55 @@ public class TestBuildGraphPipelineSinkTrigger {
         assertEquals(excludedProjectNames, trigger.getExcludedProjectNames());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void onJobRenamedShouldCauseChangeWhenRenamedJobIsPartOfTheAdditionalPipelines() throws RecognitionException {
+        final BuildGraphPipelineSinkTrigger trigger = new BuildGraphPipelineSinkTrigger(DEFAULT_SPEC, DEFAULT_ROOT_PROJECT_NAME,
+                DEFAULT_SINK_PROJECT_NAME, "", false, false, false, false, 0, "Mock-Root -> Sink-1\nRoot-2 -> Sink-2");
+        final boolean changed = trigger.onJobRenamed(DEFAULT_ROOT_PROJECT_NAME, "Mock-Root-1");
+        assertTrue(changed);
+        assertEquals("Mock-Root-1", trigger.getRootProjectName());
+        assertEquals("Mock-Root-1 -> Sink-1\nRoot-2 -> Sink-2", trigger.getAdditionalPipelines());
+        assertTrue(trigger.getReferencedProjectNames().containsAll(Arrays.asList("Mock-Root-1", "Sink-1", "Root-2", "Sink-2", "Mock-Sink")));
+        assertFalse(trigger.getReferencedProjectNames().contains(DEFAULT_ROOT_PROJECT_NAME));
+    }
+
+    @Test
+    public void onJobRenamedShouldLeaveTheExclusionPatternsUnchanged() throws RecognitionException {
+        final BuildGraphPipelineSinkTrigger trigger = newBuildGraphPipelineSinkTrigger("*-nightly, Job-1, /Job-[0-9]{1,3}/");
+        final boolean changed = trigger.onJobRenamed("Job-1", "Job-1-1");
+        assertTrue(changed);
+        assertEquals("*-nightly,Job-1-1,/Job-[0-9]{1,3}/", trigger.getExcludedProjectNames());
+        assertTrue(trigger.getReferencedProjectNames().contains("Job-1-1"));
+        assertFalse(trigger.getReferencedProjectNames().contains("*-nightly"));
+    }
+
+    @Test
+    public void stopShouldCancelThePendingEvaluationsAndScheduleNoMore() throws RecognitionException {
+        final Timer timer = Trigger.timer;
+        final List<TimerTask> scheduled = new ArrayList<TimerTask>();
+        Trigger.timer = new Timer(true) {
+            @Override
+            public void schedule(TimerTask task, long delay) {
+                scheduled.add(task);
+                super.schedule(task, delay);
+            }
+        };
+        try {
+            final BuildGraphPipelineSinkTrigger trigger = new BuildGraphPipelineSinkTrigger(DEFAULT_SPEC, DEFAULT_ROOT_PROJECT_NAME,
+                    DEFAULT_SINK_PROJECT_NAME, "", false, false, true, false, 0, "");
+            trigger.onUpstreamBuildCompleted();
+            trigger.onUpstreamBuildCompleted();
+            assertEquals(1, scheduled.size());
+            trigger.stop();
+            // Cancelling a task that was already cancelled (rather than run) has no effect.
+            assertFalse(scheduled.get(0).cancel());
+            trigger.onUpstreamBuildCompleted();
+            assertEquals(1, scheduled.size());
+        }
+        finally {
+            Trigger.timer.cancel();
+            Trigger.timer = timer;
+        }
+    }
+
+}
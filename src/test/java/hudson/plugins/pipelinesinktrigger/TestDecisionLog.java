@@ -0,0 +1,43 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestDecisionLog {
+
+    private static DecisionLog.Entry newEntry(long timestamp) {
+        return new DecisionLog.Entry(timestamp, TriggerMetrics.Outcome.UNCHANGED, 0L, null);
+    }
+
+    @Test
+    public void getEntriesShouldReturnTheMostRecentEntryFirst() {
+        final DecisionLog log = new DecisionLog(3);
+        log.add(newEntry(1L));
+        log.add(newEntry(2L));
+        final List<DecisionLog.Entry> entries = log.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals(2L, entries.get(0).getTime().getTime());
+        assertEquals(1L, entries.get(1).getTime().getTime());
+    }
+
+    @Test
+    public void addShouldEvictTheOldestEntryWhenTheCapacityIsReached() {
+        final DecisionLog log = new DecisionLog(3);
+        for (long timestamp = 1L; timestamp <= 5L; timestamp++) {
+            log.add(newEntry(timestamp));
+        }
+        final List<DecisionLog.Entry> entries = log.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals(5L, entries.get(0).getTime().getTime());
+        assertEquals(3L, entries.get(2).getTime().getTime());
+    }
+
+    @Test
+    public void getMessageShouldBeEmptyWithoutMessage() {
+        assertEquals("", newEntry(1L).getMessage());
+    }
+
+}
@@ -0,0 +1,122 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestExclusionMatcher {
+
+    private static ExclusionMatcher compile(String excludedProjectNames) {
+        return ExclusionMatcher.compile(ExclusionMatcher.split(excludedProjectNames));
+    }
+
+    @Test
+    public void splitShouldTrimTheExclusionsAndLeaveOutTheBlankOnes() {
+        assertEquals(Arrays.asList("Job-1", "Job-2", "*-nightly"), ExclusionMatcher.split(" Job-1, ,Job-2 ,*-nightly,"));
+        assertTrue(ExclusionMatcher.split("").isEmpty());
+        assertTrue(ExclusionMatcher.split(null).isEmpty());
+    }
+
+    @Test
+    public void splitShouldNotSeparateTheExclusionsOnTheCommasWithinARegularExpression() {
+        assertEquals(Arrays.asList("Job-1", "/Job-[0-9]{1,3}/", "Job-2"), ExclusionMatcher.split("Job-1, /Job-[0-9]{1,3}/ , Job-2"));
+        assertEquals(Arrays.asList("/a,b/"), ExclusionMatcher.split("/a,b/"));
+    }
+
+    @Test
+    public void matchesShouldMatchTheProjectNamesExactly() {
+        final ExclusionMatcher matcher = compile("Job-1, Job-2");
+        assertTrue(matcher.matches("Job-1"));
+        assertTrue(matcher.matches("Job-2"));
+        assertFalse(matcher.matches("Job-3"));
+        assertFalse(matcher.matches("Job-10"));
+    }
+
+    @Test
+    public void matchesShouldMatchTheGlobPatternsAgainstTheWholeProjectName() {
+        final ExclusionMatcher matcher = compile("*-nightly, sandbox-*, Job-?");
+        assertTrue(matcher.matches("MyProduct-nightly"));
+        assertFalse(matcher.matches("MyProduct-nightly-2"));
+        assertTrue(matcher.matches("sandbox-john"));
+        assertFalse(matcher.matches("my-sandbox-john"));
+        assertTrue(matcher.matches("Job-1"));
+        assertFalse(matcher.matches("Job-10"));
+    }
+
+    @Test
+    public void matchesShouldTreatTheRegularExpressionCharactersOfAGlobPatternLiterally() {
+        final ExclusionMatcher matcher = compile("Job.(1)*");
+        assertTrue(matcher.matches("Job.(1)-a"));
+        assertFalse(matcher.matches("JobX1-a"));
+    }
+
+    @Test
+    public void matchesShouldMatchTheRegularExpressionsAgainstTheWholeProjectName() {
+        final ExclusionMatcher matcher = compile("/release-[0-9]{1,3}/, Job-1");
+        assertTrue(matcher.matches("release-42"));
+        assertFalse(matcher.matches("release-1234"));
+        assertFalse(matcher.matches("my-release-42"));
+        assertTrue(matcher.matches("Job-1"));
+    }
+
+    @Test
+    public void compileShouldIgnoreTheInvalidRegularExpressions() {
+        final ExclusionMatcher matcher = compile("/release-[/, *-nightly");
+        assertTrue(matcher.matches("MyProduct-nightly"));
+        assertFalse(matcher.matches("release-["));
+    }
+
+    @Test
+    public void matchesShouldMatchAgainstManyGlobPatterns() {
+        final List<String> exclusions = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            exclusions.add("team-" + i + "-*");
+            exclusions.add("*-" + i + "-sandbox");
+        }
+        final ExclusionMatcher matcher = ExclusionMatcher.compile(exclusions);
+        assertTrue(matcher.matches("team-42-nightly"));
+        assertTrue(matcher.matches("team-999-"));
+        assertTrue(matcher.matches("my-team-7-sandbox"));
+        assertFalse(matcher.matches("team-1000-nightly"));
+        assertFalse(matcher.matches("team-42"));
+        assertFalse(matcher.matches("my-7-sandbox-2"));
+    }
+
+    @Test
+    public void globAutomatonShouldNotBacktrackOnConsecutiveStars() {
+        final GlobAutomaton automaton = new GlobAutomaton(Arrays.asList("*a*a*a*a*a*a*a*a*a*a*b", "a?c", ""));
+        final String name = StringUtils.repeat('a', 10000);
+        assertFalse(automaton.matches(name));
+        assertTrue(automaton.matches(name + "b"));
+        assertTrue(automaton.matches("abc"));
+        assertTrue(automaton.matches(""));
+        assertFalse(automaton.matches("ac"));
+    }
+
+    @Test
+    public void compileShouldIgnoreTheRegularExpressionsBeyondTheMaximum() {
+        final List<String> exclusions = Lists.newArrayList();
+        for (int i = 0; i <= ExclusionMatcher.MAX_REGEXES; i++) {
+            exclusions.add("/release-" + i + "-[0-9]+/");
+        }
+        final ExclusionMatcher matcher = ExclusionMatcher.compile(exclusions);
+        assertTrue(matcher.matches("release-0-42"));
+        assertTrue(matcher.matches("release-" + (ExclusionMatcher.MAX_REGEXES - 1) + "-42"));
+        assertFalse(matcher.matches("release-" + ExclusionMatcher.MAX_REGEXES + "-42"));
+    }
+
+    @Test
+    public void matchersCompiledFromTheSameExclusionsShouldBeEqual() {
+        assertEquals(compile("Job-1, *-nightly"), compile(" Job-1 ,*-nightly"));
+        assertFalse(compile("Job-1").equals(compile("Job-2")));
+    }
+
+}
@@ -0,0 +1,47 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.model.Result;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.Test;
+
+public class TestLastBuildStatusCache {
+
+    private static final String JOB = "Job-1";
+
+    @Test
+    public void putIfMoreRecentShouldKeepTheMostRecentBuildWhenBuildsCompleteOutOfOrder() {
+        final ConcurrentMap<String, BuildStatus> statuses = new ConcurrentHashMap<String, BuildStatus>();
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("7", 7, null));
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("8", 8, null));
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("8", 8, Result.SUCCESS));
+        // The completion of the older build is notified last.
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("7", 7, Result.FAILURE));
+        assertEquals("8", statuses.get(JOB).getBuildId());
+        assertFalse(statuses.get(JOB).isNonSuccessful());
+    }
+
+    @Test
+    public void putIfMoreRecentShouldNotLetACompletionReplaceTheStartOfTheNextBuild() {
+        final ConcurrentMap<String, BuildStatus> statuses = new ConcurrentHashMap<String, BuildStatus>();
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("7", 7, null));
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("8", 8, null));
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("7", 7, Result.SUCCESS));
+        assertEquals("8", statuses.get(JOB).getBuildId());
+        assertTrue(statuses.get(JOB).isCompleting());
+    }
+
+    @Test
+    public void putIfMoreRecentShouldRecordTheCompletionOfTheSameBuild() {
+        final ConcurrentMap<String, BuildStatus> statuses = new ConcurrentHashMap<String, BuildStatus>();
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("7", 7, null));
+        LastBuildStatusCache.putIfMoreRecent(statuses, JOB, new BuildStatus("7", 7, Result.FAILURE));
+        assertTrue(statuses.get(JOB).isNonSuccessful());
+    }
+
+}
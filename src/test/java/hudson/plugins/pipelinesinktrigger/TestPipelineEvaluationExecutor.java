@@ -0,0 +1,53 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.antlr.runtime.RecognitionException;
+import org.junit.Test;
+
+public class TestPipelineEvaluationExecutor {
+
+    /**
+     * Trigger whose first evaluation throws (as, e.g., a failed capture of the status of the projects would).
+     */
+    private static final class FailingOnceTrigger extends BuildGraphPipelineSinkTrigger {
+
+        private final AtomicInteger evaluations = new AtomicInteger();
+        private final CountDownLatch firstEvaluation = new CountDownLatch(1);
+        private final CountDownLatch secondEvaluation = new CountDownLatch(1);
+
+        FailingOnceTrigger() throws RecognitionException {
+            super("* * * * *", "Root", "Sink", "", false, false, false, false, 0, "");
+        }
+
+        @Override
+        void evaluate(HudsonProjectStatusSource statusSource) {
+            if (evaluations.incrementAndGet() == 1) {
+                firstEvaluation.countDown();
+                throw new IllegalStateException("Simulated failure");
+            }
+            secondEvaluation.countDown();
+        }
+
+    }
+
+    @Test
+    public void submitShouldStillEvaluateTheTriggerAfterAnEvaluationFailed() throws Exception {
+        final FailingOnceTrigger trigger = new FailingOnceTrigger();
+        PipelineEvaluationExecutor.submit(trigger, new HudsonProjectStatusSource(null));
+        assertTrue(trigger.firstEvaluation.await(5, TimeUnit.SECONDS));
+        // A request received while the failing evaluation is still winding down is coalesced with it, so keep asking.
+        boolean evaluatedAgain = false;
+        for (int attempt = 0; attempt < 50 && !evaluatedAgain; attempt++) {
+            PipelineEvaluationExecutor.submit(trigger, new HudsonProjectStatusSource(null));
+            evaluatedAgain = trigger.secondEvaluation.await(100, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(evaluatedAgain);
+        PipelineEvaluationExecutor.cancel(trigger);
+    }
+
+}
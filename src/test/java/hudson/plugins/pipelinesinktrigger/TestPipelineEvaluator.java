@@ -0,0 +1,218 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import hudson.model.Result;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class TestPipelineEvaluator {
+
+    private static final List<String> NODES = Arrays.asList("Job-1", "Job-2", "Job-3");
+
+    private static final class MockProjectStatusSource implements ProjectStatusSource<String> {
+
+        private final Set<String> activeNodes = Sets.newHashSet();
+        private final Map<String, BuildStatus> lastBuildStatuses = Maps.newHashMap();
+
+        public String getFullName(String node) {
+            return node;
+        }
+
+        public boolean isActive(String node) {
+            return activeNodes.contains(node);
+        }
+
+        public BuildStatus getLastBuildStatus(String node) {
+            final BuildStatus status = lastBuildStatuses.get(node);
+            return status == null ? BuildStatus.NEVER_BUILT : status;
+        }
+
+        public MockProjectStatusSource withLastBuild(String node, String buildId, Result result) {
+            lastBuildStatuses.put(node, new BuildStatus(buildId, result));
+            return this;
+        }
+
+    }
+
+    private static PipelineEvaluator.Decision evaluate(MockProjectStatusSource statuses, boolean ignoreNonSuccessful, PipelineFingerprint prev) {
+        return new PipelineEvaluator<String>(statuses, ignoreNonSuccessful).evaluate(NODES, new PipelineFingerprint(), prev);
+    }
+
+    private static PipelineFingerprint fingerprintOf(MockProjectStatusSource statuses) {
+        final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        new PipelineEvaluator<String>(statuses, true).evaluate(NODES, fingerprint, null);
+        return fingerprint;
+    }
+
+    @Test
+    public void evaluateShouldReportAnActivePipelineWhenANodeIsRunningOrQueued() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource();
+        statuses.activeNodes.add("Job-2");
+        final PipelineEvaluator.Decision decision = evaluate(statuses, false, null);
+        assertEquals(PipelineEvaluator.Outcome.ACTIVE, decision.getOutcome());
+        assertEquals("Job-2", decision.getActiveNodeName());
+    }
+
+    @Test
+    public void evaluateShouldReportAnActivePipelineWhenALastBuildIsStillCompleting() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource().withLastBuild("Job-3", "1", null);
+        assertEquals(PipelineEvaluator.Outcome.ACTIVE, evaluate(statuses, false, null).getOutcome());
+    }
+
+    @Test
+    public void evaluateShouldReportAnUnstablePipelineUnlessNonSuccessfulBuildsAreIgnored() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource().withLastBuild("Job-1", "1", Result.FAILURE)
+                .withLastBuild("Job-2", "1", Result.UNSTABLE);
+        PipelineEvaluator.Decision decision = evaluate(statuses, false, null);
+        assertEquals(PipelineEvaluator.Outcome.UNSTABLE, decision.getOutcome());
+        assertEquals(Arrays.asList("Job-1"), decision.getNonSuccessfulNodeNames());
+        decision = evaluate(statuses, true, null);
+        assertEquals(PipelineEvaluator.Outcome.NO_PREVIOUS_FINGERPRINT, decision.getOutcome());
+        assertEquals(Arrays.asList("Job-1"), decision.getNonSuccessfulNodeNames());
+    }
+
+    @Test
+    public void evaluateShouldStopAtTheFirstNonSuccessfulNodeUnlessNonSuccessfulBuildsAreIgnored() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource().withLastBuild("Job-1", "1", Result.FAILURE)
+                .withLastBuild("Job-2", "1", Result.FAILURE);
+        statuses.activeNodes.add("Job-3");
+        final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        PipelineEvaluator.Decision decision = new PipelineEvaluator<String>(statuses, false).evaluate(NODES, fingerprint, null);
+        assertEquals(PipelineEvaluator.Outcome.UNSTABLE, decision.getOutcome());
+        assertEquals(Arrays.asList("Job-1"), decision.getNonSuccessfulNodeNames());
+        assertEquals(new PipelineFingerprint().serialize(), fingerprint.serialize());
+        decision = evaluate(statuses, true, null);
+        assertEquals(PipelineEvaluator.Outcome.ACTIVE, decision.getOutcome());
+        assertEquals("Job-3", decision.getActiveNodeName());
+    }
+
+    @Test
+    public void evaluateShouldReportTheChangedNodesSinceThePreviousFingerprint() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource().withLastBuild("Job-1", "1", Result.SUCCESS);
+        final PipelineFingerprint prev = fingerprintOf(statuses);
+        assertEquals(PipelineEvaluator.Outcome.UNCHANGED, evaluate(statuses, false, prev).getOutcome());
+        statuses.withLastBuild("Job-1", "2", Result.SUCCESS).withLastBuild("Job-3", "1", Result.SUCCESS);
+        final PipelineEvaluator.Decision decision = evaluate(statuses, false, prev);
+        assertEquals(PipelineEvaluator.Outcome.CHANGED, decision.getOutcome());
+        assertEquals(Arrays.asList("Job-1", "Job-3"), decision.getChangedNodeNames());
+        assertTrue(decision.getNonSuccessfulNodeNames().isEmpty());
+    }
+
+    private static List<String> manyNodes(int count) {
+        final List<String> nodes = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add("Job-" + i);
+        }
+        return nodes;
+    }
+
+    @Test
+    public void evaluateInParallelShouldYieldTheSameDecisionAndFingerprintAsASequentialEvaluation() {
+        final List<String> nodes = manyNodes(1000);
+        final MockProjectStatusSource statuses = new MockProjectStatusSource();
+        for (int i = 0; i < nodes.size(); i++) {
+            statuses.withLastBuild(nodes.get(i), String.valueOf(i), i % 100 == 7 ? Result.FAILURE : Result.SUCCESS);
+        }
+        final ExecutorService scanExecutor = Executors.newFixedThreadPool(4);
+        try {
+            final PipelineFingerprint sequentialFingerprint = new PipelineFingerprint();
+            final PipelineEvaluator.Decision sequential = new PipelineEvaluator<String>(statuses, true).evaluate(nodes, sequentialFingerprint, null);
+            final PipelineFingerprint parallelFingerprint = new PipelineFingerprint();
+            final PipelineEvaluator.Decision parallel = new PipelineEvaluator<String>(statuses, true, scanExecutor, 100).evaluate(nodes,
+                    parallelFingerprint, null);
+            assertEquals(sequential.getOutcome(), parallel.getOutcome());
+            assertEquals(sequential.getNonSuccessfulNodeNames(), parallel.getNonSuccessfulNodeNames());
+            assertEquals(10, parallel.getNonSuccessfulNodeNames().size());
+            assertEquals(sequentialFingerprint.serialize(), parallelFingerprint.serialize());
+        }
+        finally {
+            scanExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void evaluateInParallelShouldReportAnActivePipelineWhenANodeIsRunningOrQueued() {
+        final List<String> nodes = manyNodes(1000);
+        final MockProjectStatusSource statuses = new MockProjectStatusSource();
+        statuses.activeNodes.add("Job-900");
+        final ExecutorService scanExecutor = Executors.newFixedThreadPool(4);
+        try {
+            final PipelineEvaluator.Decision decision = new PipelineEvaluator<String>(statuses, false, scanExecutor, 100).evaluate(nodes,
+                    new PipelineFingerprint(), null);
+            assertEquals(PipelineEvaluator.Outcome.ACTIVE, decision.getOutcome());
+            assertEquals("Job-900", decision.getActiveNodeName());
+        }
+        finally {
+            scanExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void evaluateInParallelShouldReportTheFirstNonSuccessfulNodeUnlessNonSuccessfulBuildsAreIgnored() {
+        final List<String> nodes = manyNodes(1000);
+        final MockProjectStatusSource statuses = new MockProjectStatusSource();
+        for (int i = 0; i < nodes.size(); i++) {
+            statuses.withLastBuild(nodes.get(i), String.valueOf(i), i == 30 || i == 700 ? Result.FAILURE : Result.SUCCESS);
+        }
+        final ExecutorService scanExecutor = Executors.newFixedThreadPool(4);
+        try {
+            final PipelineEvaluator.Decision decision = new PipelineEvaluator<String>(statuses, false, scanExecutor, 100).evaluate(nodes,
+                    new PipelineFingerprint(), null);
+            assertEquals(PipelineEvaluator.Outcome.UNSTABLE, decision.getOutcome());
+            assertEquals(1, decision.getNonSuccessfulNodeNames().size());
+            assertTrue(Arrays.asList("Job-30", "Job-700").containsAll(decision.getNonSuccessfulNodeNames()));
+        }
+        finally {
+            scanExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void resolveOutcomeShouldHoldAChangeBackUntilTheFingerprintHasSettled() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource().withLastBuild("Job-1", "1", Result.SUCCESS);
+        final PipelineFingerprint prev = fingerprintOf(statuses);
+        statuses.withLastBuild("Job-1", "2", Result.SUCCESS);
+        final SettleWindow settleWindow = new SettleWindow(1000L);
+        final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        final PipelineEvaluator<String> evaluator = new PipelineEvaluator<String>(statuses, false);
+
+        assertEquals(TriggerMetrics.Outcome.SETTLING, evaluator.evaluate(NODES, fingerprint, prev).resolveOutcome(settleWindow, fingerprint, 5000L));
+        assertEquals(1000L, settleWindow.getRemaining(5000L));
+        assertEquals(TriggerMetrics.Outcome.SETTLING, evaluator.evaluate(NODES, fingerprint, prev).resolveOutcome(settleWindow, fingerprint, 5600L));
+        assertEquals(400L, settleWindow.getRemaining(5600L));
+        assertEquals(TriggerMetrics.Outcome.TRIGGERED, evaluator.evaluate(NODES, fingerprint, prev).resolveOutcome(settleWindow, fingerprint, 6000L));
+        assertEquals(0L, settleWindow.getRemaining(6000L));
+
+        statuses.activeNodes.add("Job-2");
+        settleWindow.offer(fingerprint.getDigest(), 7000L);
+        assertEquals(TriggerMetrics.Outcome.ACTIVE, evaluator.evaluate(NODES, fingerprint, prev).resolveOutcome(settleWindow, fingerprint, 7000L));
+        assertEquals(0L, settleWindow.getRemaining(7000L));
+        statuses.activeNodes.clear();
+        assertEquals(TriggerMetrics.Outcome.BASELINE, evaluator.evaluate(NODES, fingerprint, null).resolveOutcome(settleWindow, fingerprint, 8000L));
+        assertEquals(TriggerMetrics.Outcome.UNCHANGED, evaluator.evaluate(NODES, fingerprint, fingerprint.copy())
+                .resolveOutcome(settleWindow, fingerprint, 8000L));
+    }
+
+    @Test
+    public void resolveOutcomeShouldTriggerAtOnceWithoutASettlePeriod() {
+        final MockProjectStatusSource statuses = new MockProjectStatusSource().withLastBuild("Job-1", "1", Result.SUCCESS);
+        final PipelineFingerprint prev = fingerprintOf(statuses);
+        statuses.withLastBuild("Job-1", "2", Result.SUCCESS);
+        final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        assertEquals(TriggerMetrics.Outcome.TRIGGERED, new PipelineEvaluator<String>(statuses, false).evaluate(NODES, fingerprint, prev)
+                .resolveOutcome(new SettleWindow(0L), fingerprint, 5000L));
+    }
+
+}
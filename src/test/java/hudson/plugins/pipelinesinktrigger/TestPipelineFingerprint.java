@@ -0,0 +1,69 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestPipelineFingerprint {
+
+    private static PipelineFingerprint newPipelineFingerprint(String... nodeNamesAndBuildIds) {
+        final PipelineFingerprint fingerprint = new PipelineFingerprint();
+        for (int i = 0; i < nodeNamesAndBuildIds.length; i += 2) {
+            fingerprint.update(nodeNamesAndBuildIds[i], nodeNamesAndBuildIds[i + 1]);
+        }
+        return fingerprint;
+    }
+
+    @Test
+    public void digestShouldNotDependOnTheOrderOfTheUpdates() {
+        final PipelineFingerprint fingerprint1 = newPipelineFingerprint("Job-1", "1", "Job-2", "", "Job-3", "7");
+        final PipelineFingerprint fingerprint2 = newPipelineFingerprint("Job-3", "7", "Job-1", "1", "Job-2", "");
+        assertTrue(fingerprint1.hasSameDigestAs(fingerprint2));
+        assertEquals(fingerprint1.getDigest(), fingerprint2.getDigest());
+    }
+
+    @Test
+    public void incrementalUpdatesShouldYieldTheSameDigestAsAFreshFingerprint() {
+        final PipelineFingerprint fingerprint = newPipelineFingerprint("Job-1", "1", "Job-2", "1", "Job-3", "1");
+        assertTrue(fingerprint.update("Job-2", "2"));
+        assertFalse(fingerprint.update("Job-3", "1"));
+        fingerprint.update("Job-4", "1");
+        fingerprint.retainAll(Arrays.asList("Job-2", "Job-3", "Job-4"));
+        assertTrue(fingerprint.hasSameDigestAs(newPipelineFingerprint("Job-2", "2", "Job-3", "1", "Job-4", "1")));
+    }
+
+    @Test
+    public void getChangedNodesShouldReportChangedAddedAndRemovedNodes() {
+        final PipelineFingerprint previous = newPipelineFingerprint("Job-1", "1", "Job-2", "1", "Job-3", "1");
+        final PipelineFingerprint current = previous.copy();
+        current.update("Job-3", "2");
+        current.update("Job-4", "1");
+        current.retainAll(Arrays.asList("Job-2", "Job-3", "Job-4"));
+        assertEquals(Arrays.asList("Job-1", "Job-3", "Job-4"), current.getChangedNodes(previous));
+        assertTrue(previous.getChangedNodes(previous.copy()).isEmpty());
+        assertFalse(current.hasSameDigestAs(previous));
+    }
+
+    @Test
+    public void parseShouldRestoreASerializedFingerprint() {
+        final PipelineFingerprint fingerprint = newPipelineFingerprint("Job-1", "2013-01-01_00-00-00", "Job-2", "");
+        final PipelineFingerprint parsed = PipelineFingerprint.parse(fingerprint.serialize());
+        assertTrue(fingerprint.hasSameDigestAs(parsed));
+        assertTrue(fingerprint.getChangedNodes(parsed).isEmpty());
+    }
+
+    @Test
+    public void parseShouldDiscardBlankLegacyAndInconsistentFingerprints() {
+        assertNull(PipelineFingerprint.parse(null));
+        assertNull(PipelineFingerprint.parse(""));
+        assertNull(PipelineFingerprint.parse("da39a3ee5e6b4b0d3255bfef95601890afd80709"));
+        final String serialized = newPipelineFingerprint("Job-1", "1", "Job-2", "1").serialize();
+        assertNull(PipelineFingerprint.parse(serialized.substring(0, serialized.lastIndexOf('\t'))));
+    }
+
+}
@@ -0,0 +1,107 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class TestPipelineGraph {
+
+    /**
+     * @param edges consecutive (source, target) node names; the first source is the root.
+     */
+    private static PipelineGraph<String> newPipelineGraph(String... edges) {
+        final List<String> nodes = Lists.newArrayList();
+        final Map<String, Integer> ids = Maps.newHashMap();
+        final int[] edgeIds = new int[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            if (!ids.containsKey(edges[i])) {
+                ids.put(edges[i], nodes.size());
+                nodes.add(edges[i]);
+            }
+            edgeIds[i] = ids.get(edges[i]);
+        }
+        return new PipelineGraph<String>(nodes, ids, edgeIds, edges.length / 2);
+    }
+
+    private static String[] names(PipelineGraph<String> graph, int[] ids) {
+        final String[] names = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            names[i] = graph.getNode(ids[i]);
+        }
+        return names;
+    }
+
+    @Test
+    public void getDepthFirstOrderShouldVisitEachNodeOnceInNaturalOrder() {
+        final PipelineGraph<String> graph = newPipelineGraph("R", "A", "R", "B", "A", "C", "B", "C", "C", "D");
+        assertArrayEquals(new String[] { "R", "A", "C", "D", "B" }, names(graph, graph.getDepthFirstOrder()));
+    }
+
+    @Test
+    public void analyzeShouldDetectCyclesAndSelfLoops() {
+        assertTrue(newPipelineGraph("R", "A", "A", "B", "B", "A").analyze().hasCycles());
+        assertTrue(newPipelineGraph("R", "A", "A", "A").analyze().hasCycles());
+        assertFalse(newPipelineGraph("R", "A", "R", "B", "A", "B").analyze().hasCycles());
+    }
+
+    @Test
+    public void analyzeShouldOrderEveryNodeAfterItsPredecessorsWhenThereAreNoCycles() {
+        final PipelineGraph<String> graph = newPipelineGraph("R", "A", "R", "B", "A", "C", "B", "C", "C", "D", "R", "D");
+        final PipelineGraph.Analysis analysis = graph.analyze();
+        assertFalse(analysis.hasCycles());
+        final int[] order = analysis.getTopologicalOrder();
+        assertEquals(graph.getNodeCount(), order.length);
+        final int[] positions = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            positions[order[i]] = i;
+        }
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            for (int k = 0; k < graph.getOutDegree(id); k++) {
+                assertTrue(positions[id] < positions[graph.getSuccessor(id, k)]);
+            }
+        }
+    }
+
+    @Test
+    public void analyzeShouldReportTheMembersOfEachCycle() {
+        final PipelineGraph<String> graph = newPipelineGraph("R", "A", "A", "B", "B", "C", "C", "A", "C", "D", "D", "E", "E", "E", "R", "F");
+        final PipelineGraph.Analysis analysis = graph.analyze();
+        assertTrue(analysis.hasCycles());
+        assertEquals(2, analysis.getCycles().size());
+        final List<List<String>> cycles = Lists.newArrayList();
+        for (int[] cycle : analysis.getCycles()) {
+            cycles.add(Arrays.asList(names(graph, cycle)));
+        }
+        assertTrue(cycles.contains(Arrays.asList("A", "B", "C")));
+        assertTrue(cycles.contains(Arrays.asList("E")));
+        // Every node is still ordered, the upstream nodes of a cycle before it, and its downstream nodes after it.
+        final List<String> order = Arrays.asList(names(graph, analysis.getTopologicalOrder()));
+        assertEquals(graph.getNodeCount(), order.size());
+        assertEquals("R", order.get(0));
+        assertTrue(order.indexOf("C") < order.indexOf("D"));
+        assertTrue(order.indexOf("D") < order.indexOf("E"));
+    }
+
+    @Test
+    public void getAncestorsShouldOnlyContainTheNodesFromWhichTheSeedsAreReachable() {
+        final PipelineGraph<String> graph = newPipelineGraph("R", "A", "R", "B", "A", "C", "B", "D", "C", "E");
+        final BitSet ancestors = graph.getAncestors(new int[] { graph.getId("C") });
+        assertEquals(3, ancestors.cardinality());
+        assertTrue(ancestors.get(graph.getId("R")));
+        assertTrue(ancestors.get(graph.getId("A")));
+        assertTrue(ancestors.get(graph.getId("C")));
+        assertEquals(-1, graph.getId("Z"));
+    }
+
+}
@@ -0,0 +1,115 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Functions;
+
+public class TestPipelineGraphBuilder {
+
+    /**
+     * Synthetic diamond lattice: a single root fans out to {@code width} nodes, each level being fully connected to the next one, and
+     * the last level fans in to a single tail node. The number of root-to-tail paths is {@code width^depth}.
+     */
+    private static final class DiamondLatticeSource implements ProjectGraphSource<String> {
+
+        private final int width;
+        private final int depth;
+        private int expansions;
+
+        public DiamondLatticeSource(int width, int depth) {
+            this.width = width;
+            this.depth = depth;
+        }
+
+        public String getName(String node) {
+            return node;
+        }
+
+        public List<String> getDownstream(String node) {
+            expansions++;
+            if ("tail".equals(node)) {
+                return Collections.emptyList();
+            }
+            final int level = "root".equals(node) ? -1 : Integer.parseInt(node.substring(1, node.indexOf('-')));
+            if (level == depth - 1) {
+                return Collections.singletonList("tail");
+            }
+            final List<String> children = new ArrayList<String>();
+            for (int i = 0; i < width; i++) {
+                children.add(String.format("L%d-%d", level + 1, i));
+            }
+            return children;
+        }
+
+        public int getVertexCount() {
+            return width * depth + 2;
+        }
+
+        public int getEdgeCount() {
+            return width + (width * width * (depth - 1)) + width;
+        }
+
+    }
+
+    @Test
+    public void buildShouldExpandEachNodeExactlyOnceForDeepDiamondLattices() {
+        final DiamondLatticeSource source = new DiamondLatticeSource(2, 24);
+        final PipelineGraphBuilder<String> builder = new PipelineGraphBuilder<String>(source);
+        final PipelineGraph<String> graph = builder.build("root");
+        assertEquals(source.getVertexCount(), graph.getNodeCount());
+        assertEquals(source.getEdgeCount(), graph.getEdgeCount());
+        assertEquals(source.getVertexCount(), source.expansions);
+    }
+
+    @Test
+    public void buildShouldExpandEachNodeExactlyOnceForWideDiamondLattices() {
+        final DiamondLatticeSource source = new DiamondLatticeSource(5, 30);
+        final PipelineGraphBuilder<String> builder = new PipelineGraphBuilder<String>(source);
+        final PipelineGraph<String> graph = builder.build("root");
+        assertEquals(source.getVertexCount(), graph.getNodeCount());
+        assertEquals(source.getEdgeCount(), graph.getEdgeCount());
+        assertEquals(source.getVertexCount(), source.expansions);
+    }
+
+    @Test
+    public void buildShouldRecordEveryEdgeOfASharedDescendant() {
+        final DiamondLatticeSource source = new DiamondLatticeSource(3, 1);
+        final PipelineGraph<String> graph = new PipelineGraphBuilder<String>(source).build("root");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(graph.containsEdge(graph.getId("L0-" + i), graph.getId("tail")));
+        }
+        assertEquals(1, graph.getAncestors(new int[] { graph.getId("root") }).cardinality());
+    }
+
+    @Test
+    public void buildShouldDiscardDuplicateDownstreamRelationships() {
+        final PipelineGraph<String> graph = new PipelineGraphBuilder<String>(new ProjectGraphSource<String>() {
+            public String getName(String node) {
+                return node;
+            }
+
+            public List<String> getDownstream(String node) {
+                return "root".equals(node) ? Arrays.asList("Job-1", "Job-1", "root") : Collections.<String>emptyList();
+            }
+        }).build("root");
+        assertEquals(2, graph.getNodeCount());
+        assertEquals(2, graph.getEdgeCount());
+        assertTrue(graph.containsEdge(0, 0));
+    }
+
+    @Test
+    public void adjacencyListingShouldContainOneLinePerNode() {
+        final DiamondLatticeSource source = new DiamondLatticeSource(2, 20);
+        final PipelineGraph<String> graph = new PipelineGraphBuilder<String>(source).build("root");
+        assertEquals(source.getVertexCount(), graph.toAdjacencyListing(Functions.toStringFunction()).split(String.format("%n")).length);
+    }
+
+}
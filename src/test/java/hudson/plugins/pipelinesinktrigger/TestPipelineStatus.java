@@ -0,0 +1,134 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class TestPipelineStatus {
+
+    private static SinkPipeline newSinkPipeline() {
+        return new SinkPipeline("Root", "Sink", "pipeline-context.fingerprint", 0L);
+    }
+
+    private static PipelineStatus newStatus(SinkPipeline pipeline) {
+        return new PipelineStatus(Collections.singletonList(pipeline));
+    }
+
+    private static void evaluated(SinkPipeline pipeline, long timestamp, TriggerMetrics.Outcome outcome) {
+        pipeline.setSnapshot(new PipelineSnapshot.Builder().build(pipeline, timestamp, outcome, null));
+    }
+
+    @Test
+    public void getPipelinesShouldReportPairsThatHaveNotBeenEvaluatedYet() {
+        final PipelineSnapshot snapshot = newStatus(newSinkPipeline()).getPipelines().get(0);
+        assertEquals("Root", snapshot.getRootProjectName());
+        assertEquals("Sink", snapshot.getSinkProjectName());
+        assertNull(snapshot.getOutcome());
+        assertNull(snapshot.getTime());
+        assertNull(snapshot.getInactive());
+        assertNull(snapshot.getFingerprint());
+        assertNull(snapshot.getLastTriggerTime());
+    }
+
+    @Test
+    public void snapshotShouldTellWhetherThePipelineIsInactiveStableAndStale() {
+        final SinkPipeline pipeline = newSinkPipeline();
+        evaluated(pipeline, 1L, TriggerMetrics.Outcome.TRIGGERED);
+        PipelineSnapshot snapshot = pipeline.getSnapshot();
+        assertEquals(Boolean.TRUE, snapshot.getInactive());
+        assertEquals(Boolean.TRUE, snapshot.getStable());
+        assertEquals(Boolean.TRUE, snapshot.getStale());
+
+        pipeline.setSnapshot(new PipelineSnapshot.Builder().blocking("Job-1", PipelineSnapshot.BlockingReason.ACTIVE)
+                .build(pipeline, 2L, TriggerMetrics.Outcome.ACTIVE, null));
+        snapshot = pipeline.getSnapshot();
+        assertEquals(Boolean.FALSE, snapshot.getInactive());
+        assertNull(snapshot.getStable());
+        assertNull(snapshot.getStale());
+        assertEquals(1, snapshot.getBlockingNodes().size());
+        assertEquals("Job-1", snapshot.getBlockingNodes().get(0).getName());
+        assertEquals("ACTIVE", snapshot.getBlockingNodes().get(0).getReason());
+
+        evaluated(pipeline, 3L, TriggerMetrics.Outcome.UNSTABLE);
+        assertEquals(Boolean.FALSE, pipeline.getSnapshot().getStable());
+        evaluated(pipeline, 4L, TriggerMetrics.Outcome.UNCHANGED);
+        assertEquals(Boolean.FALSE, pipeline.getSnapshot().getStale());
+        evaluated(pipeline, 5L, TriggerMetrics.Outcome.SKIPPED);
+        assertNull(pipeline.getSnapshot().getInactive());
+    }
+
+    @Test
+    public void getETagShouldNotChangeWhenAnUnchangedPipelineIsEvaluatedAgain() {
+        final SinkPipeline pipeline = newSinkPipeline();
+        evaluated(pipeline, 1L, TriggerMetrics.Outcome.UNCHANGED);
+        final String eTag = newStatus(pipeline).getETag();
+        evaluated(pipeline, 2L, TriggerMetrics.Outcome.UNCHANGED);
+        assertEquals(eTag, newStatus(pipeline).getETag());
+        assertTrue(eTag.startsWith("W/\""));
+    }
+
+    @Test
+    public void getETagShouldChangeWithTheFingerprintOrTheOutcome() {
+        final SinkPipeline pipeline = newSinkPipeline();
+        evaluated(pipeline, 1L, TriggerMetrics.Outcome.UNCHANGED);
+        final String eTag = newStatus(pipeline).getETag();
+
+        evaluated(pipeline, 2L, TriggerMetrics.Outcome.ACTIVE);
+        final String activeETag = newStatus(pipeline).getETag();
+        assertFalse(eTag.equals(activeETag));
+
+        pipeline.getFingerprint().update("Job-1", "1");
+        evaluated(pipeline, 3L, TriggerMetrics.Outcome.UNCHANGED);
+        final String changedETag = newStatus(pipeline).getETag();
+        assertFalse(eTag.equals(changedETag));
+        assertFalse(activeETag.equals(changedETag));
+
+        pipeline.setLastTriggerTime(4L);
+        evaluated(pipeline, 4L, TriggerMetrics.Outcome.UNCHANGED);
+        assertFalse(changedETag.equals(newStatus(pipeline).getETag()));
+        assertEquals(4L, pipeline.getSnapshot().getLastTriggerTime().getTime());
+    }
+
+    @Test
+    public void getETagShouldChangeWithTheMessage() {
+        final SinkPipeline pipeline = newSinkPipeline();
+        pipeline.setSnapshot(new PipelineSnapshot.Builder().build(pipeline, 1L, TriggerMetrics.Outcome.SKIPPED,
+                Messages._BuildGraphPipelineSinkTrigger_RootProjectDisabled("Root")));
+        final String eTag = newStatus(pipeline).getETag();
+        pipeline.setSnapshot(new PipelineSnapshot.Builder().build(pipeline, 2L, TriggerMetrics.Outcome.SKIPPED,
+                Messages._BuildGraphPipelineSinkTrigger_SkippingTriggerSinceSinkProjectIsBuilding("Sink")));
+        final String sinkBuildingETag = newStatus(pipeline).getETag();
+        assertFalse(eTag.equals(sinkBuildingETag));
+        pipeline.setSnapshot(new PipelineSnapshot.Builder().build(pipeline, 3L, TriggerMetrics.Outcome.SKIPPED,
+                Messages._BuildGraphPipelineSinkTrigger_SkippingTriggerSinceSinkProjectIsBuilding("Sink-2")));
+        assertFalse(sinkBuildingETag.equals(newStatus(pipeline).getETag()));
+    }
+
+    @Test
+    public void matchesShouldCompareTheEntityTagsWeakly() {
+        final String eTag = "W/\"abc\"";
+        assertTrue(PipelineStatus.matches("W/\"abc\"", eTag));
+        assertTrue(PipelineStatus.matches("\"abc\"", eTag));
+        assertTrue(PipelineStatus.matches("\"xyz\", W/\"abc\"", eTag));
+        assertTrue(PipelineStatus.matches("*", eTag));
+        assertFalse(PipelineStatus.matches("W/\"xyz\"", eTag));
+        assertFalse(PipelineStatus.matches(null, eTag));
+    }
+
+    @Test
+    public void getPipelinesShouldListThePairsInOrder() {
+        final SinkPipeline main = newSinkPipeline();
+        final SinkPipeline additional = new SinkPipeline("Root-2", "Sink-2", "pipeline-context.Root-2.fingerprint", 0L);
+        final PipelineStatus status = new PipelineStatus(Arrays.asList(main, additional));
+        assertEquals(2, status.getPipelines().size());
+        assertEquals("Sink", status.getPipelines().get(0).getSinkProjectName());
+        assertEquals("Sink-2", status.getPipelines().get(1).getSinkProjectName());
+    }
+
+}
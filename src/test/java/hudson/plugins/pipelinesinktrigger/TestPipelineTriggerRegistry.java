@@ -0,0 +1,63 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.antlr.runtime.RecognitionException;
+import org.junit.After;
+import org.junit.Test;
+
+public class TestPipelineTriggerRegistry {
+
+    private final BuildGraphPipelineSinkTrigger trigger1 = newBuildGraphPipelineSinkTrigger("Root-1", "Sink-1", "Job-1, Job-2");
+    private final BuildGraphPipelineSinkTrigger trigger2 = newBuildGraphPipelineSinkTrigger("Root-1", "Sink-2", "Job-2");
+
+    private static BuildGraphPipelineSinkTrigger newBuildGraphPipelineSinkTrigger(String root, String sink, String excludedProjectNames) {
+        try {
+            return new BuildGraphPipelineSinkTrigger("* * * * *", root, sink, excludedProjectNames, false, false, false, false, 0, "");
+        }
+        catch (RecognitionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        PipelineTriggerRegistry.unregister(trigger1);
+        PipelineTriggerRegistry.unregister(trigger2);
+    }
+
+    @Test
+    public void getTriggersReferencingShouldReturnTheTriggersReferringToTheProjectAsRootSinkOrExclusion() {
+        PipelineTriggerRegistry.register(trigger1);
+        PipelineTriggerRegistry.register(trigger2);
+        assertEquals(2, PipelineTriggerRegistry.getTriggersReferencing("Root-1").size());
+        assertEquals(Arrays.asList(trigger2), PipelineTriggerRegistry.getTriggersReferencing("Sink-2"));
+        assertEquals(Arrays.asList(trigger1), PipelineTriggerRegistry.getTriggersReferencing("Job-1"));
+        assertEquals(2, PipelineTriggerRegistry.getTriggersReferencing("Job-2").size());
+        assertTrue(PipelineTriggerRegistry.getTriggersReferencing("Job-3").isEmpty());
+    }
+
+    @Test
+    public void reindexShouldReflectRenamedAndDeletedProjects() {
+        PipelineTriggerRegistry.register(trigger1);
+        trigger1.onJobRenamed("Job-1", "Job-1-1");
+        trigger1.onJobDeleted("Job-2");
+        PipelineTriggerRegistry.reindex(trigger1);
+        assertTrue(PipelineTriggerRegistry.getTriggersReferencing("Job-1").isEmpty());
+        assertTrue(PipelineTriggerRegistry.getTriggersReferencing("Job-2").isEmpty());
+        assertEquals(Arrays.asList(trigger1), PipelineTriggerRegistry.getTriggersReferencing("Job-1-1"));
+    }
+
+    @Test
+    public void unregisterShouldRemoveAllTheReferencesOfTheTrigger() {
+        PipelineTriggerRegistry.register(trigger1);
+        PipelineTriggerRegistry.unregister(trigger1);
+        PipelineTriggerRegistry.reindex(trigger1);
+        assertTrue(PipelineTriggerRegistry.getTriggersReferencing("Root-1").isEmpty());
+        assertTrue(PipelineTriggerRegistry.getTriggersReferencing("Job-1").isEmpty());
+    }
+
+}
@@ -0,0 +1,39 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestSettleWindow {
+
+    @Test
+    public void offerShouldReportTheRemainingTimeUntilTheDigestHasSettled() {
+        final SettleWindow window = new SettleWindow(1000L);
+        assertEquals(1000L, window.offer("v2:a", 5000L));
+        assertEquals(400L, window.offer("v2:a", 5600L));
+        assertEquals(0L, window.offer("v2:a", 6000L));
+        assertEquals(0L, window.offer("v2:a", 9000L));
+    }
+
+    @Test
+    public void offerShouldRestartTheWindowWhenTheDigestChanges() {
+        final SettleWindow window = new SettleWindow(1000L);
+        assertEquals(1000L, window.offer("v2:a", 5000L));
+        assertEquals(1000L, window.offer("v2:b", 5800L));
+        assertEquals(200L, window.offer("v2:b", 6600L));
+    }
+
+    @Test
+    public void resetShouldDiscardTheCandidate() {
+        final SettleWindow window = new SettleWindow(1000L);
+        assertEquals(1000L, window.offer("v2:a", 5000L));
+        window.reset();
+        assertEquals(1000L, window.offer("v2:a", 6000L));
+    }
+
+    @Test
+    public void offerShouldReportSettledImmediatelyWhenThePeriodIsZero() {
+        assertEquals(0L, new SettleWindow(0L).offer("v2:a", 5000L));
+    }
+
+}
@@ -0,0 +1,72 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestSinkPipeline {
+
+    @Test
+    public void parseShouldIgnoreBlankAndMalformedDefinitions() {
+        final List<SinkPipeline> pipelines = SinkPipeline.parse("Root-1 -> Sink-1\r\n\n  \nRoot-2\n -> Sink-3\nRoot-2->Sink-2\n", 0L);
+        assertEquals(2, pipelines.size());
+        assertEquals("Root-1", pipelines.get(0).getRootProjectName());
+        assertEquals("Sink-1", pipelines.get(0).getSinkProjectName());
+        assertEquals("Root-2", pipelines.get(1).getRootProjectName());
+        assertEquals("Sink-2", pipelines.get(1).getSinkProjectName());
+        assertTrue(SinkPipeline.parse(null, 0L).isEmpty());
+    }
+
+    @Test
+    public void parseDefinitionShouldTrimTheProjectNames() {
+        assertArrayEquals(new String[] { "Root 1", "Sink-1" }, SinkPipeline.parseDefinition("  Root 1 ->Sink-1 "));
+        assertNull(SinkPipeline.parseDefinition("Root-1 Sink-1"));
+        assertNull(SinkPipeline.parseDefinition("Root-1 -> "));
+    }
+
+    @Test
+    public void eachPairShouldRecordItsFingerprintInADistinctFile() {
+        final List<SinkPipeline> pipelines = SinkPipeline.parse("Root-1 -> Sink-1\nRoot-1 -> Sink-2", 0L);
+        assertFalse(pipelines.get(0).getFingerprintFileName().equals(pipelines.get(1).getFingerprintFileName()));
+        assertFalse(pipelines.get(0).getFingerprintFileName().equals("pipeline-context.fingerprint"));
+    }
+
+    @Test
+    public void formatShouldRoundTripWithParse() {
+        final List<SinkPipeline> pipelines = SinkPipeline.parse("Root-1->Sink-1\n Root-2 -> Sink-2", 0L);
+        assertEquals("Root-1 -> Sink-1\nRoot-2 -> Sink-2", SinkPipeline.format(pipelines));
+        assertEquals(SinkPipeline.format(pipelines), SinkPipeline.format(SinkPipeline.parse(SinkPipeline.format(pipelines), 0L)));
+    }
+
+    @Test
+    public void onJobRenamedShouldRenameTheRootAndSinkProjects() {
+        final SinkPipeline pipeline = SinkPipeline.parse("Job-1 -> Job-2", 0L).get(0);
+        assertFalse(pipeline.onJobRenamed("Job-3", "Job-4"));
+        assertTrue(pipeline.onJobRenamed("Job-2", "Job-5"));
+        assertEquals("Job-1", pipeline.getRootProjectName());
+        assertEquals("Job-5", pipeline.getSinkProjectName());
+    }
+
+    @Test
+    public void onJobRenamedShouldRenameTheFingerprintFileOfAnAdditionalPair() {
+        final SinkPipeline pipeline = SinkPipeline.parse("Root-1 -> Sink-1", 0L).get(0);
+        final String fingerprintFileName = pipeline.getFingerprintFileName();
+        assertTrue(pipeline.onJobRenamed("Root-1", "Root-2"));
+        assertEquals(SinkPipeline.parse("Root-2 -> Sink-1", 0L).get(0).getFingerprintFileName(), pipeline.getFingerprintFileName());
+        assertFalse(fingerprintFileName.equals(pipeline.getFingerprintFileName()));
+    }
+
+    @Test
+    public void onJobRenamedShouldKeepTheFingerprintFileOfTheMainPair() {
+        final SinkPipeline pipeline = new SinkPipeline("Root-1", "Sink-1", "pipeline-context.fingerprint", 0L);
+        assertTrue(pipeline.onJobRenamed("Sink-1", "Sink-2"));
+        assertEquals("pipeline-context.fingerprint", pipeline.getFingerprintFileName());
+    }
+
+}
@@ -0,0 +1,69 @@
+package hudson.plugins.pipelinesinktrigger;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TestTriggerMetrics {
+
+    private static final double DELTA = 1e-9;
+
+    private static TriggerMetrics.Timing getPhase(TriggerMetrics metrics, TriggerMetrics.Phase phase) {
+        for (TriggerMetrics.Timing timing : metrics.getPhases()) {
+            if (timing.getName().equals(phase.name())) {
+                return timing;
+            }
+        }
+        throw new AssertionError(phase);
+    }
+
+    @Test
+    public void recordPhaseShouldAccumulateTheDurationsOfThePhase() {
+        final TriggerMetrics metrics = new TriggerMetrics();
+        metrics.recordPhase(TriggerMetrics.Phase.GRAPH_BUILD, TimeUnit.MILLISECONDS.toNanos(3));
+        metrics.recordPhase(TriggerMetrics.Phase.GRAPH_BUILD, TimeUnit.MILLISECONDS.toNanos(1));
+        final TriggerMetrics.Timing timing = getPhase(metrics, TriggerMetrics.Phase.GRAPH_BUILD);
+        assertEquals(2, timing.getCount());
+        assertEquals(4.0, timing.getTotalMillis(), DELTA);
+        assertEquals(2.0, timing.getMeanMillis(), DELTA);
+        assertEquals(3.0, timing.getMaxMillis(), DELTA);
+        assertEquals(1.0, timing.getLastMillis(), DELTA);
+        assertEquals(0, getPhase(metrics, TriggerMetrics.Phase.CYCLE_CHECK).getCount());
+    }
+
+    @Test
+    public void recordOutcomeShouldCountTheDecisionsByOutcome() {
+        final TriggerMetrics metrics = new TriggerMetrics();
+        metrics.recordOutcome(TriggerMetrics.Outcome.ACTIVE);
+        metrics.recordOutcome(TriggerMetrics.Outcome.ACTIVE);
+        metrics.recordOutcome(TriggerMetrics.Outcome.UNCHANGED);
+        assertEquals(2L, metrics.getOutcomeCount(TriggerMetrics.Outcome.ACTIVE));
+        assertEquals(1L, metrics.getOutcomeCount(TriggerMetrics.Outcome.UNCHANGED));
+        assertEquals(0L, metrics.getOutcomeCount(TriggerMetrics.Outcome.ERROR));
+        assertEquals(Long.valueOf(2L), metrics.getOutcomes().get("ACTIVE"));
+    }
+
+    @Test
+    public void recordTriggerShouldMeasureTheTimeElapsedSinceTheLastUpstreamCompletion() {
+        final TriggerMetrics metrics = new TriggerMetrics();
+        metrics.recordUpstreamCompletion(1000L);
+        metrics.recordUpstreamCompletion(4000L);
+        metrics.recordTrigger(6500L);
+        assertEquals(0L, metrics.getOutcomeCount(TriggerMetrics.Outcome.TRIGGERED));
+        assertEquals(1, metrics.getTimeToTrigger().getCount());
+        assertEquals(2500.0, metrics.getTimeToTrigger().getLastMillis(), DELTA);
+    }
+
+    @Test
+    public void recordTriggerShouldNotMeasureTheTimeToTriggerWithoutAnUpstreamCompletion() {
+        final TriggerMetrics metrics = new TriggerMetrics();
+        metrics.recordUpstreamCompletion(1000L);
+        metrics.recordTrigger(2000L);
+        metrics.recordTrigger(3000L);
+        assertEquals(0L, metrics.getOutcomeCount(TriggerMetrics.Outcome.TRIGGERED));
+        assertEquals(1, metrics.getTimeToTrigger().getCount());
+    }
+
+}